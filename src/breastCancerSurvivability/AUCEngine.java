@@ -0,0 +1,211 @@
+package breastCancerSurvivability;
+
+import java.util.Arrays;
+import java.util.List;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.classifiers.Classifier;
+import weka.classifiers.evaluation.NominalPrediction;
+import weka.classifiers.evaluation.Prediction;
+
+public class AUCEngine {
+	/* ROC area over primitive (score, label, weight) arrays, equal to
+	 * ThresholdCurve.getROCArea(new ThresholdCurve().getCurve(predictions)) for the last
+	 * class, without building the curve: the same sort of the scores (Utils.sort), then the
+	 * same walk over the distinct thresholds and the same trapezoids. The arrays are reused
+	 * from call to call, so an engine allocates only when a call needs more room than any
+	 * before it; one engine per thread.
+	 */
+
+	private static final ThreadLocal<AUCEngine> LOCAL = new ThreadLocal<AUCEngine>() {
+		protected AUCEngine initialValue() {
+			return new AUCEngine();
+		}
+	};
+
+	private double[] scores = new double[0];
+	private byte[] labels = new byte[0];
+	private double[] weights = new double[0];
+	private int size = 0;
+	// Sort workspace: keys by row (NaN as Double.MAX_VALUE, as weka.core.Utils.sort) and row order
+	private double[] keys = new double[0];
+	private int[] order = new int[0];
+	// Trapezoid points, TP and FP weight at every threshold
+	private double[] tps = new double[0];
+	private double[] fps = new double[0];
+
+	public static AUCEngine local() {
+		/* The calling thread's engine. */
+		return LOCAL.get();
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	public void add(double score, int label, double weight) {
+		/** Adds one prediction.
+		 * Args:
+		 *  (double) score: Predicted probability of the positive class.
+		 *  (int) label: 1 if positive, 0 if not, -1 if the actual class is missing.
+		 *  (double) weight: Instance weight; negative weights are ignored, as by ThresholdCurve.
+		 */
+		if (size == scores.length) { grow(Math.max(16, 2 * size)); }
+		scores[size] = score;
+		labels[size] = (byte) label;
+		weights[size] = weight;
+		size++;
+	}
+
+	private void grow(int capacity) {
+		scores = Arrays.copyOf(scores, capacity);
+		labels = Arrays.copyOf(labels, capacity);
+		weights = Arrays.copyOf(weights, capacity);
+	}
+
+	public double area(List<Prediction> predictions) {
+		/* ROC area of the last class of weka predictions (e.g. Evaluation.predictions()). */
+		clear();
+		if (predictions == null || predictions.isEmpty()) { return Double.NaN; }
+		int positive = ((NominalPrediction) predictions.get(0)).distribution().length - 1;
+		for (Prediction p : predictions) {
+			double actual = p.actual();
+			int label = (actual == Prediction.MISSING_VALUE) ? -1 : ((int) actual == positive ? 1 : 0);
+			add(((NominalPrediction) p).distribution()[positive], label, p.weight());
+		}
+		return area();
+	}
+
+	public double area(Classifier cla, Instances data) throws Exception {
+		/* ROC area of the last class of `cla`'s predictions on `data`, scored as one block (Scoring). */
+		int n = data.numInstances();
+		if (scores.length < n) { grow(n); }
+		int positive = data.numClasses() - 1;
+		Scoring.score(cla, data, positive, scores);
+		for (int i = 0; i < n; i++) {
+			Instance inst = data.instance(i);
+			labels[i] = (byte) (inst.classIsMissing() ? -1 : ((int) inst.classValue() == positive ? 1 : 0));
+			weights[i] = inst.weight();
+		}
+		size = n;
+		return area();
+	}
+
+	public double area() {
+		/** ROC area of the predictions added since clear().
+		 * Returns:
+		 * (double) AUC: NaN without predictions or without both classes.
+		 */
+		int n = size;
+		if (n == 0) { return Double.NaN; }
+		if (keys.length < n) {
+			keys = new double[scores.length];
+			order = new int[scores.length];
+		}
+		double totPos = 0.0, totNeg = 0.0;
+		for (int i = 0; i < n; i++) {
+			keys[i] = Double.isNaN(scores[i]) ? Double.MAX_VALUE : scores[i];
+			order[i] = i;
+			if (labels[i] < 0 || weights[i] < 0) { continue; }
+			if (labels[i] == 1) { totPos += weights[i]; } else { totNeg += weights[i]; }
+		}
+		sort(0, n - 1);
+
+		// ThresholdCurve.getCurve: a point per distinct score, ascending
+		if (tps.length < n + 2) {
+			tps = new double[scores.length + 2];
+			fps = new double[scores.length + 2];
+		}
+		int points = 0;
+		double tp = totPos, fn = 0.0, fp = totNeg, tn = 0.0;
+		double threshold = 0.0, cumulativePos = 0.0, cumulativeNeg = 0.0;
+		for (int i = 0; i < n; i++) {
+			int r = order[i];
+			if (i == 0 || scores[r] > threshold) {
+				tp -= cumulativePos;
+				fn += cumulativePos;
+				fp -= cumulativeNeg;
+				tn += cumulativeNeg;
+				threshold = scores[r];
+				tps[points] = tp;
+				fps[points] = fp;
+				points++;
+				cumulativePos = 0.0;
+				cumulativeNeg = 0.0;
+				if (i == n - 1) { break; }
+			}
+			if (labels[r] < 0 || weights[r] < 0) { continue; }
+			if (labels[r] == 1) { cumulativePos += weights[r]; } else { cumulativeNeg += weights[r]; }
+		}
+		// The curve always ends at (0, 0)
+		if (fn != totPos || tn != totNeg) {
+			tps[points] = 0.0;
+			fps[points] = 0.0;
+			points++;
+		}
+
+		// ThresholdCurve.getROCArea
+		double area = 0.0, cumNeg = 0.0;
+		for (int i = 0; i < points; i++) {
+			double cip, cin;
+			if (i < points - 1) {
+				cip = tps[i] - tps[i + 1];
+				cin = fps[i] - fps[i + 1];
+			} else {
+				cip = tps[points - 1];
+				cin = fps[points - 1];
+			}
+			area += cip * (cumNeg + (0.5 * cin));
+			cumNeg += cin;
+		}
+		return area / (tps[0] * fps[0]);
+	}
+
+	private void sort(int left, int right) {
+		// weka.core.Utils.sort's quicksort of order[left..right] by keys[row], step for step,
+		// so equal scores come out in ThresholdCurve's order and add up in the same order
+		switch (right - left) {
+		case 0:
+			return;
+		case 1:
+			conditionalSwap(left, right);
+			return;
+		case 2:
+			conditionalSwap(left, left + 1);
+			conditionalSwap(left, right);
+			conditionalSwap(left + 1, right);
+			return;
+		default:
+			int center = (left + right) / 2;
+			conditionalSwap(left, center);
+			conditionalSwap(left, right);
+			conditionalSwap(center, right);
+			swap(center, right - 1);
+			center = partition(left, right, keys[order[right - 1]]);
+			swap(center, right - 1);
+			sort(left, center - 1);
+			sort(center + 1, right);
+		}
+	}
+
+	private int partition(int l, int r, double pivot) {
+		r--;
+		while (true) {
+			while (keys[order[++l]] < pivot) { }
+			while (keys[order[--r]] > pivot) { }
+			if (l >= r) { return l; }
+			swap(l, r);
+		}
+	}
+
+	private void conditionalSwap(int a, int b) {
+		if (keys[order[a]] > keys[order[b]]) { swap(a, b); }
+	}
+
+	private void swap(int a, int b) {
+		int o = order[a];
+		order[a] = order[b];
+		order[b] = o;
+	}
+}
@@ -0,0 +1,158 @@
+package breastCancerSurvivability;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import weka.core.Instances;
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.BatchScorer;
+import weka.classifiers.Classifier;
+import weka.classifiers.meta.CostSensitiveClassifier;
+
+public class AgeingMatrix {
+	/* Train-window x test-year AUC matrices of the ageing experiment. Stage by stage,
+	 * the models of every start year are trained in parallel, then every test year some
+	 * model is scored on is sliced once and scored by all of them, test years in parallel.
+	 * Naive Bayes models are summed from a one-fold CountCube instead of trained.
+	 */
+
+	private final PartitionIndex index;
+	private final int firstYear;
+	private final int lastYear;
+	private int step = 5;
+	private int threads = Parallel.threads();
+
+	public AgeingMatrix(PartitionIndex index, int firstYear, int lastYear) {
+		/** Args:
+		 *  (PartitionIndex) index: Index over the dataset.
+		 *  (int) firstYear: First start year of the training windows.
+		 *  (int) lastYear: Last test year.
+		 */
+		this.index = index;
+		this.firstYear = firstYear;
+		this.lastYear = lastYear;
+	}
+
+	public void setStep(int step) {
+		/* Years between the starts of consecutive training windows. */
+		this.step = step;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public int[] startYears(int window) {
+		/* Start years of the `window`-year training windows, all followed by a test year. */
+		List<Integer> starts = new ArrayList<Integer>();
+		for (int y = firstYear; y < (lastYear - window + 1); y += step) { starts.add(y); }
+		int[] years = new int[starts.size()];
+		for (int i = 0; i < years.length; i++) { years[i] = starts.get(i); }
+		return years;
+	}
+
+	public double[][][] compute(final CostSensitiveClassifier cla, int[] stages, int[] windows)
+			throws Exception {
+		/** Args:
+		 *  (CostSensitiveClassifier) cla: Classifier to train, left untrained.
+		 *  (int[]) stages: SEER-historic-stage-A values, -1 for every stage.
+		 *  (int[]) windows: Training window length of each stage.
+		 *
+		 * Returns:
+		 * (double[][][]) AUC: AUC[s][i][testYear - firstYear] of the model trained on the
+		 * i-th start year of stage s (startYears(windows[s])); NaN for test years inside
+		 * or before the training window.
+		 */
+		final ColumnStore store = index.store();
+		final CountCube cube = (CountedNaiveBayes.emulates(cla) && CountedNaiveBayes.countable(store))
+				? new CountCube(store, new int[store.numRows()], 1) : null;
+		int numYears = lastYear - firstYear + 1;
+		double[][][] AUC = new double[stages.length][][];
+		// One stage at a time, so only its models are held
+		for (int s = 0; s < stages.length; s++) {
+			final int stage = stages[s];
+			final int W = windows[s];
+			final int[] starts = startYears(W);
+			AUC[s] = new double[starts.length][numYears];
+			for (int i = 0; i < starts.length; i++) { Arrays.fill(AUC[s][i], Double.NaN); }
+			if (starts.length == 0) { continue; }
+
+			List<Callable<Classifier>> training = new ArrayList<Callable<Classifier>>();
+			for (final int y : starts) {
+				training.add(new Callable<Classifier>() {
+					public Classifier call() throws Exception {
+						if (cube != null) {
+							CountedNaiveBayes model = new CountedNaiveBayes();
+							model.setCostMatrix(cla.getCostMatrix());
+							model.train(store.header(), cube.counts(stage, y, y + W - 1, -1));
+							return model;
+						}
+						Classifier model = AbstractClassifier.makeCopy(cla);
+						model.buildClassifier(Dataset.getWindow(index, stage, y, y + W - 1));
+						return model;
+					}
+				});
+			}
+			final List<Classifier> models = Parallel.invokeStealing(training, threads);
+			final ModelCopies copies = new ModelCopies(models, threads > 1);
+
+			// A test year is sliced only if some model is scored on it, by the task scoring it
+			List<Callable<double[]>> scoring = new ArrayList<Callable<double[]>>();
+			for (int t = starts[0] + W; t <= lastYear; t++) {
+				final int testYear = t;
+				scoring.add(new Callable<double[]>() {
+					public double[] call() throws Exception {
+						Instances test = Dataset.getYear(index, stage, testYear);
+						double[] scores = new double[starts.length];
+						for (int i = 0; i < starts.length; i++) {
+							scores[i] = (starts[i] + W <= testYear)
+									? AUCEngine.local().area(copies.get(i), test) : Double.NaN;
+						}
+						return scores;
+					}
+				});
+			}
+			List<double[]> scores = Parallel.invokeStealing(scoring, threads);
+			for (int k = 0; k < scores.size(); k++) {
+				int t = starts[0] + W + k - firstYear;
+				for (int i = 0; i < starts.length; i++) { AUC[s][i][t] = scores.get(k)[i]; }
+			}
+		}
+		return AUC;
+	}
+
+	private static class ModelCopies {
+		/* The models a worker thread scores with: distributionForInstance is not thread-safe
+		 * for every classifier (e.g. Logistic's filters), so concurrent threads get their own
+		 * copy, made once per thread, of any model not known to be read-only when scoring.
+		 */
+
+		private final List<Classifier> models;
+		private final boolean concurrent;
+		private final ThreadLocal<Classifier[]> copies = new ThreadLocal<Classifier[]>();
+
+		ModelCopies(List<Classifier> models, boolean concurrent) {
+			this.models = models;
+			this.concurrent = concurrent;
+		}
+
+		private static boolean readOnly(Classifier model) {
+			// NaiveBayes without discretization and the BatchScorer trees only read the model
+			return model instanceof CountedNaiveBayes || Scoring.unwrap(model) instanceof BatchScorer;
+		}
+
+		Classifier get(int i) throws Exception {
+			Classifier model = models.get(i);
+			if (!concurrent || readOnly(model)) { return model; }
+			Classifier[] own = copies.get();
+			if (own == null) {
+				own = new Classifier[models.size()];
+				copies.set(own);
+			}
+			if (own[i] == null) { own[i] = AbstractClassifier.makeCopy(model); }
+			return own[i];
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package breastCancerSurvivability;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+public class ArffStream {
+
+	private final Instances header;
+	private final RowFilter filter;
+	private final int stageCol;
+	private final int yearCol;
+	private final boolean[] stageMask;
+	private final boolean[] yearMask;
+	// Start/end offsets of every field of the current line, reused across lines
+	private int[] bounds;
+
+	public ArffStream(Instances header, RowFilter filter) {
+		/** Line parser for the @data section of an ARFF with `header`.
+		 * Args:
+		 *  (Instances) header: Dataset structure (nominal and numeric attributes only).
+		 *  (RowFilter) filter: Rules applied before a row is decoded; null keeps every row.
+		 */
+		this.header = header;
+		this.filter = filter;
+		this.stageCol = filter == null ? -1 : header.attribute(RowFilter.STAGE).index();
+		this.yearCol = filter == null ? -1 : header.attribute(RowFilter.YEAR).index();
+		this.stageMask = filter == null ? null : filter.stageMask(header.attribute(stageCol));
+		this.yearMask = filter == null ? null : filter.yearMask(header.attribute(yearCol));
+		this.bounds = new int[2 * (header.numAttributes() + 1)];
+		for (int a = 0; a < header.numAttributes(); a++) {
+			if (!header.attribute(a).isNominal() && !header.attribute(a).isNumeric()) {
+				throw new IllegalArgumentException("Unsupported attribute type: " + header.attribute(a).name());
+			}
+		}
+	}
+
+	public Instance parse(String line) throws IOException {
+		/* Decodes one data line; null for blank lines, comments and rejected rows. */
+		int numFields = split(line);
+		if (numFields == 0) { return null; }
+		if (line.charAt(bounds[0]) == '{' && numFields < header.numAttributes()) {
+			throw new IOException("Sparse ARFF rows are not supported: " + line);
+		}
+		if (numFields < header.numAttributes()) {
+			throw new IOException("Expected " + header.numAttributes() + " values: " + line);
+		}
+		if (filter != null && !filter.accept(stageMask, yearMask, code(line, stageCol),
+				code(line, yearCol))) {
+			return null;
+		}
+		double[] values = new double[header.numAttributes()];
+		for (int a = 0; a < values.length; a++) {
+			if (isMissing(line, a)) { values[a] = Utils.missingValue(); }
+			else if (header.attribute(a).isNominal()) { values[a] = code(line, a); }
+			else { values[a] = Double.parseDouble(token(line, a)); }
+		}
+		double weight = 1.0;
+		if (numFields > header.numAttributes()) {
+			// Trailing instance weight written as {w}
+			String w = token(line, header.numAttributes());
+			if (numFields > header.numAttributes() + 1 || !w.startsWith("{") || !w.endsWith("}")) {
+				throw new IOException("Expected " + header.numAttributes() + " values: " + line);
+			}
+			weight = Double.parseDouble(w.substring(1, w.length() - 1).trim());
+		}
+		return new DenseInstance(weight, values);
+	}
+
+	private int code(String line, int att) throws IOException {
+		if (isMissing(line, att)) { return -1; }
+		Attribute attribute = header.attribute(att);
+		int code = attribute.indexOfValue(token(line, att));
+		if (code < 0) {
+			throw new IOException("Undeclared value '" + token(line, att) + "' for " + attribute.name());
+		}
+		return code;
+	}
+
+	private boolean isMissing(String line, int att) {
+		// `?` in ARFF; CSV exports may also leave the field empty
+		int length = bounds[2 * att + 1] - bounds[2 * att];
+		return length == 0 || (length == 1 && line.charAt(bounds[2 * att]) == '?');
+	}
+
+	private String token(String line, int field) {
+		int start = bounds[2 * field];
+		int end = bounds[2 * field + 1];
+		if (start == end) { return ""; }
+		char first = line.charAt(start);
+		if ((first == '\'' || first == '"') && end - start >= 2 && line.charAt(end - 1) == first) {
+			String quoted = line.substring(start + 1, end - 1);
+			return quoted.indexOf('\\') < 0 ? quoted : unescape(quoted);
+		}
+		return line.substring(start, end);
+	}
+
+	private static String unescape(String s) {
+		StringBuilder out = new StringBuilder(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '\\' && i + 1 < s.length()) { c = s.charAt(++i); }
+			out.append(c);
+		}
+		return out.toString();
+	}
+
+	private int split(String line) {
+		/* Fills `bounds` with the trimmed extent of each comma-separated field. */
+		int n = 0;
+		int i = 0;
+		int len = line.length();
+		while (i < len && Character.isWhitespace(line.charAt(i))) { i++; }
+		if (i == len || line.charAt(i) == '%') { return 0; }
+		while (i <= len) {
+			while (i < len && Character.isWhitespace(line.charAt(i))) { i++; }
+			int start = i;
+			char quote = (i < len && (line.charAt(i) == '\'' || line.charAt(i) == '"')) ? line.charAt(i) : 0;
+			if (quote != 0) {
+				i++;
+				while (i < len && line.charAt(i) != quote) { i += (line.charAt(i) == '\\') ? 2 : 1; }
+				i = Math.min(i + 1, len);
+			} else if (i < len && line.charAt(i) == '{') {
+				while (i < len && line.charAt(i) != '}') { i++; }
+				i = Math.min(i + 1, len);
+			}
+			while (i < len && line.charAt(i) != ',') { i++; }
+			int end = i;
+			while (end > start && Character.isWhitespace(line.charAt(end - 1))) { end--; }
+			if (2 * n + 1 >= bounds.length) { bounds = Arrays.copyOf(bounds, 2 * bounds.length); }
+			bounds[2 * n] = start;
+			bounds[2 * n + 1] = end;
+			n++;
+			i++;
+		}
+		return n;
+	}
+}
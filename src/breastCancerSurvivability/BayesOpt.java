@@ -0,0 +1,251 @@
+package breastCancerSurvivability;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class BayesOpt {
+	/* Maximizes an expensive, noisy 1-D function on [lower, upper] with a Gaussian process
+	 * (squared-exponential kernel, length scale picked by marginal likelihood) and
+	 * expected improvement, stopping once no point is expected to improve by `minEI`.
+	 */
+
+	public interface Objective {
+		double evaluate(double x) throws Exception;
+	}
+
+	private static final double[] LENGTH_SCALES = {0.25, 0.5, 1, 2, 4};
+	// Candidates scanned for the maximum of the expected improvement
+	private static final int CANDIDATES = 512;
+	// Relative noise of the standardized observations (CV estimates are not exact)
+	private static final double NOISE = 1e-4;
+	// Largest diagonal jitter tried when the kernel matrix does not factorize
+	private static final double MAX_JITTER = 1.0;
+
+	private final double lower;
+	private final double upper;
+	private int initialPoints = 5;
+	private int maxEvaluations = 30;
+	private double minEI = 1e-4;
+
+	private final List<Double> xs = new ArrayList<Double>();
+	private final List<Double> ys = new ArrayList<Double>();
+	private double lastEI = Double.NaN;
+
+	public BayesOpt(double lower, double upper) {
+		this.lower = lower;
+		this.upper = upper;
+	}
+
+	public void setInitialPoints(int initialPoints) {
+		/* Evenly spaced points evaluated before the model is used, ends included. */
+		this.initialPoints = Math.max(2, initialPoints);
+	}
+
+	public void setMaxEvaluations(int maxEvaluations) {
+		this.maxEvaluations = maxEvaluations;
+	}
+
+	public void setMinEI(double minEI) {
+		/* Stop when the best expected improvement falls below this, in objective units. */
+		this.minEI = minEI;
+	}
+
+	public List<Double> evaluatedPoints() {
+		return xs;
+	}
+
+	public List<Double> evaluatedValues() {
+		return ys;
+	}
+
+	public double lastEI() {
+		/* Expected improvement of the last proposal, below minEI if that stopped the search. */
+		return lastEI;
+	}
+
+	public int best() {
+		/* Index of the best evaluation; ties keep the earliest. */
+		int best = 0;
+		for (int i = 1; i < ys.size(); i++) {
+			if (ys.get(i) > ys.get(best)) { best = i; }
+		}
+		return best;
+	}
+
+	public double optimize(Objective f) throws Exception {
+		/** Runs the optimization.
+		 * Returns:
+		 * (double) x: the best evaluated point; see evaluatedPoints()/evaluatedValues().
+		 */
+		for (int i = 0; i < initialPoints && xs.size() < maxEvaluations; i++) {
+			double x = lower + i * (upper - lower) / (initialPoints - 1);
+			xs.add(x);
+			ys.add(f.evaluate(x));
+		}
+		while (xs.size() < maxEvaluations) {
+			double[] next = propose();
+			lastEI = next[1];
+			if (next[1] < minEI) { break; }
+			xs.add(next[0]);
+			ys.add(f.evaluate(next[0]));
+		}
+		return xs.get(best());
+	}
+
+	private double[] propose() {
+		// Standardize the observations; NaN evaluations are left out of the model
+		List<Double> px = new ArrayList<Double>();
+		List<Double> py = new ArrayList<Double>();
+		for (int i = 0; i < xs.size(); i++) {
+			if (!Double.isNaN(ys.get(i))) {
+				px.add(xs.get(i));
+				py.add(ys.get(i));
+			}
+		}
+		int n = px.size();
+		if (n == 0) { return new double[] {(lower + upper) / 2, Double.POSITIVE_INFINITY}; }
+		double mean = 0.0, var = 0.0;
+		for (double y : py) { mean += y; }
+		mean /= n;
+		for (double y : py) { var += (y - mean) * (y - mean); }
+		double scale = (n > 1 && var > 0) ? Math.sqrt(var / (n - 1)) : 1.0;
+		double[] x = new double[n], y = new double[n];
+		double best = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			x[i] = px.get(i);
+			y[i] = (py.get(i) - mean) / scale;
+			best = Math.max(best, y[i]);
+		}
+
+		// Length scale with the highest log marginal likelihood; a kernel matrix that does
+		// not factorize is retried with ten times the jitter on its diagonal
+		double[][] L = null;
+		double[] alpha = null;
+		double ell = LENGTH_SCALES[0], bestLik = Double.NEGATIVE_INFINITY;
+		for (double l : LENGTH_SCALES) {
+			double[][] chol = null;
+			for (double jitter = NOISE; chol == null && jitter <= MAX_JITTER; jitter *= 10) {
+				chol = cholesky(kernel(x, l, jitter));
+			}
+			if (chol == null) { continue; }
+			double[] a = solve(chol, y);
+			double lik = 0.0;
+			for (int i = 0; i < n; i++) { lik -= 0.5 * y[i] * a[i] + Math.log(chol[i][i]); }
+			if (lik > bestLik) {
+				bestLik = lik;
+				ell = l;
+				L = chol;
+				alpha = a;
+			}
+		}
+		if (L == null) { return new double[] {widestGap(), Double.POSITIVE_INFINITY}; }
+
+		double bestX = lower, bestEI = -1.0;
+		double[] k = new double[n];
+		for (int c = 0; c < CANDIDATES; c++) {
+			double xc = lower + c * (upper - lower) / (CANDIDATES - 1);
+			for (int i = 0; i < n; i++) { k[i] = rbf(xc, x[i], ell); }
+			double mu = 0.0;
+			for (int i = 0; i < n; i++) { mu += k[i] * alpha[i]; }
+			double[] v = forward(L, k);
+			double s2 = 1.0;
+			for (int i = 0; i < n; i++) { s2 -= v[i] * v[i]; }
+			double sigma = Math.sqrt(Math.max(s2, 1e-12));
+			double z = (mu - best) / sigma;
+			double ei = (mu - best) * cdf(z) + sigma * pdf(z);
+			if (ei > bestEI) {
+				bestEI = ei;
+				bestX = xc;
+			}
+		}
+		// Back to objective units
+		return new double[] {bestX, bestEI * scale};
+	}
+
+	private static double rbf(double a, double b, double ell) {
+		double d = (a - b) / ell;
+		return Math.exp(-0.5 * d * d);
+	}
+
+	private double widestGap() {
+		// Midpoint of the widest interval between evaluated points, bounds included
+		List<Double> points = new ArrayList<Double>(xs);
+		points.add(lower);
+		points.add(upper);
+		Collections.sort(points);
+		double mid = (lower + upper) / 2, width = -1.0;
+		for (int i = 1; i < points.size(); i++) {
+			if (points.get(i) - points.get(i - 1) > width) {
+				width = points.get(i) - points.get(i - 1);
+				mid = (points.get(i) + points.get(i - 1)) / 2;
+			}
+		}
+		return mid;
+	}
+
+	private static double[][] kernel(double[] x, double ell, double jitter) {
+		int n = x.length;
+		double[][] K = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) { K[i][j] = rbf(x[i], x[j], ell); }
+			K[i][i] += jitter;
+		}
+		return K;
+	}
+
+	private static double[][] cholesky(double[][] A) {
+		// Lower-triangular L with A = L L^T, or null if A is not positive definite
+		int n = A.length;
+		double[][] L = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j <= i; j++) {
+				double sum = A[i][j];
+				for (int k = 0; k < j; k++) { sum -= L[i][k] * L[j][k]; }
+				if (i == j) {
+					if (sum <= 0) { return null; }
+					L[i][i] = Math.sqrt(sum);
+				} else {
+					L[i][j] = sum / L[j][j];
+				}
+			}
+		}
+		return L;
+	}
+
+	private static double[] forward(double[][] L, double[] b) {
+		int n = b.length;
+		double[] z = new double[n];
+		for (int i = 0; i < n; i++) {
+			double sum = b[i];
+			for (int k = 0; k < i; k++) { sum -= L[i][k] * z[k]; }
+			z[i] = sum / L[i][i];
+		}
+		return z;
+	}
+
+	private static double[] solve(double[][] L, double[] b) {
+		// (L L^T)^-1 b
+		int n = b.length;
+		double[] z = forward(L, b);
+		double[] x = new double[n];
+		for (int i = n - 1; i >= 0; i--) {
+			double sum = z[i];
+			for (int k = i + 1; k < n; k++) { sum -= L[k][i] * x[k]; }
+			x[i] = sum / L[i][i];
+		}
+		return x;
+	}
+
+	private static double pdf(double z) {
+		return Math.exp(-0.5 * z * z) / Math.sqrt(2 * Math.PI);
+	}
+
+	private static double cdf(double z) {
+		// Abramowitz-Stegun 7.1.26 erf approximation, |error| < 1.5e-7
+		double t = 1.0 / (1.0 + 0.3275911 * Math.abs(z) / Math.sqrt(2));
+		double erf = 1 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741
+				+ t * (-1.453152027 + t * 1.061405429)))) * Math.exp(-0.5 * z * z);
+		return 0.5 * (1 + (z >= 0 ? erf : -erf));
+	}
+}
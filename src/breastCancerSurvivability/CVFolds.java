@@ -0,0 +1,92 @@
+package breastCancerSurvivability;
+
+import java.util.Random;
+
+import weka.core.Instances;
+import weka.classifiers.trees.adtree.ReferenceInstances;
+
+public class CVFolds {
+
+	private final Instances data;
+	private final int numFolds;
+
+	public CVFolds(Instances data, int numFolds) {
+		/** Cross-validation folds over `data` kept as row indices.
+		 * Args:
+		 *  (Instances) data: Base dataset, already stratified if needed; not copied.
+		 *  (int) numFolds: Number of folds.
+		 */
+		if (numFolds < 2 || numFolds > data.numInstances()) {
+			throw new IllegalArgumentException("Cannot make " + numFolds + " folds of "
+					+ data.numInstances() + " instances");
+		}
+		this.data = data;
+		this.numFolds = numFolds;
+	}
+
+	public int numFolds() {
+		return numFolds;
+	}
+
+	public Instances data() {
+		return data;
+	}
+
+	private int first(int fold) {
+		// Same split as Instances.testCV
+		int n = data.numInstances();
+		int offset = (fold < n % numFolds) ? fold : n % numFolds;
+		return fold * (n / numFolds) + offset;
+	}
+
+	private int size(int fold) {
+		int n = data.numInstances();
+		return n / numFolds + ((fold < n % numFolds) ? 1 : 0);
+	}
+
+	public int[] testRows(int fold) {
+		int[] rows = new int[size(fold)];
+		int first = first(fold);
+		for (int i = 0; i < rows.length; i++) { rows[i] = first + i; }
+		return rows;
+	}
+
+	public int[] trainRows(int fold) {
+		/* Rows of the training fold, in the order Instances.trainCV(numFolds, fold, new Random(1)) gives. */
+		int first = first(fold);
+		int last = first + size(fold);
+		int[] rows = new int[data.numInstances() - size(fold)];
+		int n = 0;
+		for (int i = 0; i < first; i++) { rows[n++] = i; }
+		for (int i = last; i < data.numInstances(); i++) { rows[n++] = i; }
+		Random random = new Random(1);
+		for (int j = rows.length - 1; j > 0; j--) {
+			int k = random.nextInt(j + 1);
+			int tmp = rows[j];
+			rows[j] = rows[k];
+			rows[k] = tmp;
+		}
+		return rows;
+	}
+
+	public Instances view(int[] rows) {
+		/** Classifier-facing dataset over `rows` that references, not copies, the base instances.
+		 * Args:
+		 *  (int[]) rows: Row indices into the base dataset.
+		 *
+		 * Returns:
+		 * (Instances) view: only valid while the base instances are left unmodified.
+		 */
+		ReferenceInstances view = new ReferenceInstances(data, rows.length);
+		for (int i = 0; i < rows.length; i++) { view.addReference(data.instance(rows[i])); }
+		return view;
+	}
+
+	public Instances trainView(int fold) {
+		return view(trainRows(fold));
+	}
+
+	public Instances testView(int fold) {
+		return view(testRows(fold));
+	}
+}
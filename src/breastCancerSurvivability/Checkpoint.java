@@ -0,0 +1,130 @@
+package breastCancerSurvivability;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+
+public class Checkpoint {
+	/* Journal of the completed cells of a sweep, kept next to its results file
+	 * (`filename`.journal), so a sweep killed half way resumes where it stopped: every
+	 * cell's results line is journaled, the results file is rebuilt from the journal on
+	 * restart, and drivers skip the cells found in it. Journal writes are forced to disk
+	 * (fsync) in batches, so a crash loses at most the last batch. The journal is deleted
+	 * once the sweep completes (close()), and the next run starts over.
+	 */
+
+	private static final String SUFFIX = ".journal";
+
+	private final File journalFile;
+	private final LinkedHashMap<String, String> cells = new LinkedHashMap<String, String>();
+	private final FileOutputStream journalStream;
+	private final BufferedWriter journal;
+	private final BufferedWriter results;
+	private int syncEvery = 16;
+	private long syncMillis = 30000;
+	private int pending = 0;
+	private long lastSync = System.currentTimeMillis();
+
+	public Checkpoint(String filename, String header, String config) throws IOException {
+		/** Opens the sweep writing `filename`, resuming it if its journal was written by the
+		 * same configuration, otherwise starting over.
+		 * Args:
+		 *  (String) filename: Results file.
+		 *  (String) header: First line of the results file, without newline; null for none.
+		 *  (String) config: Identifies the sweep (classifier, data, parameters), one line.
+		 */
+		journalFile = new File(filename + SUFFIX);
+		if (journalFile.isFile() && !load(config)) { journalFile.delete(); }
+		boolean resumed = journalFile.isFile();
+		journalStream = new FileOutputStream(journalFile, true);
+		journal = new BufferedWriter(new OutputStreamWriter(journalStream, StandardCharsets.UTF_8));
+		if (!resumed) {
+			journal.write(config + "\n");
+			sync();
+		}
+		// Lines written past the last journaled cell are dropped with the rewrite
+		Dataset.rmFileExists(filename);
+		results = new BufferedWriter(new FileWriter(filename, true));
+		if (header != null) { results.write(header + "\n"); }
+		for (String line : cells.values()) { results.write(line + "\n"); }
+		results.flush();
+	}
+
+	private boolean load(String config) throws IOException {
+		// Entries are "cell\tline"; a torn last entry (no newline) is cut off the journal
+		byte[] bytes = Files.readAllBytes(journalFile.toPath());
+		int end = bytes.length;
+		while (end > 0 && bytes[end - 1] != '\n') { end--; }
+		String[] lines = new String(bytes, 0, end, StandardCharsets.UTF_8).split("\n", -1);
+		if (lines.length < 2 || !lines[0].equals(config)) { return false; }
+		for (int i = 1; i < lines.length - 1; i++) {
+			int tab = lines[i].indexOf('\t');
+			if (tab > 0) { cells.put(lines[i].substring(0, tab), lines[i].substring(tab + 1)); }
+		}
+		if (end < bytes.length) {
+			RandomAccessFile raf = new RandomAccessFile(journalFile, "rw");
+			try { raf.setLength(end); } finally { raf.close(); }
+		}
+		return true;
+	}
+
+	public void setSyncEvery(int records) {
+		/* Force the journal to disk after this many cells (1: after every cell). */
+		this.syncEvery = Math.max(1, records);
+	}
+
+	public void setSyncMillis(long millis) {
+		/* ... or once this long has passed since the last forced write. */
+		this.syncMillis = millis;
+	}
+
+	public synchronized int numDone() {
+		return cells.size();
+	}
+
+	public synchronized boolean done(String cell) {
+		return cells.containsKey(cell);
+	}
+
+	public synchronized String[] fields(String cell) {
+		/* Tab-separated fields of the results line recorded for `cell`, null if not done. */
+		String line = cells.get(cell);
+		return line == null ? null : line.split("\t", -1);
+	}
+
+	public synchronized void record(String cell, String line) throws IOException {
+		/** Appends a completed cell's results line, once per cell.
+		 * Args:
+		 *  (String) cell: Key of the cell, e.g. "seed:stage"; no tabs or newlines.
+		 *  (String) line: Results line, without newline.
+		 */
+		if (cells.containsKey(cell)) { return; }
+		cells.put(cell, line);
+		journal.write(cell + "\t" + line + "\n");
+		results.write(line + "\n");
+		if (++pending >= syncEvery || System.currentTimeMillis() - lastSync >= syncMillis) { sync(); }
+	}
+
+	private void sync() throws IOException {
+		journal.flush();
+		journalStream.getFD().sync();
+		if (results != null) { results.flush(); }
+		pending = 0;
+		lastSync = System.currentTimeMillis();
+	}
+
+	public synchronized void close() throws IOException {
+		/* Completes the sweep: flushes the results and deletes the journal. */
+		sync();
+		journal.close();
+		results.close();
+		journalFile.delete();
+	}
+}
@@ -0,0 +1,89 @@
+package breastCancerSurvivability;
+
+import java.util.Arrays;
+
+abstract class Codes {
+	/* Label indices of one nominal column, -1 = missing, in the narrowest type that fits. */
+
+	abstract int get(int row);
+
+	abstract void set(int row, int code);
+
+	abstract int size();
+
+	// Bytes per code: 1, 2 or 4
+	abstract int width();
+
+	static Codes forCardinality(int numValues, int numRows) {
+		if (numValues <= Byte.MAX_VALUE) { return new ByteCodes(new byte[numRows]); }
+		if (numValues <= Short.MAX_VALUE) { return new ShortCodes(new short[numRows]); }
+		return new IntCodes(new int[numRows]);
+	}
+
+	Codes grow(int numValues, int numRows) {
+		/* Copy holding `numRows` codes, widened if `numValues` labels no longer fit. */
+		Codes grown = forCardinality(numValues, numRows);
+		if (grown.width() <= width()) { return resized(numRows); }
+		for (int r = 0; r < size(); r++) { grown.set(r, get(r)); }
+		return grown;
+	}
+
+	abstract Codes resized(int numRows);
+
+	static Codes ofWidth(int width, int numRows) {
+		switch (width) {
+		case 1: return new ByteCodes(new byte[numRows]);
+		case 2: return new ShortCodes(new short[numRows]);
+		case 4: return new IntCodes(new int[numRows]);
+		default: throw new IllegalArgumentException("Bad code width " + width);
+		}
+	}
+
+	static final class ByteCodes extends Codes {
+		final byte[] codes;
+
+		ByteCodes(byte[] codes) { this.codes = codes; }
+
+		Codes resized(int numRows) { return new ByteCodes(Arrays.copyOf(codes, numRows)); }
+
+		int get(int row) { return codes[row]; }
+
+		void set(int row, int code) { codes[row] = (byte) code; }
+
+		int size() { return codes.length; }
+
+		int width() { return 1; }
+	}
+
+	static final class ShortCodes extends Codes {
+		final short[] codes;
+
+		ShortCodes(short[] codes) { this.codes = codes; }
+
+		Codes resized(int numRows) { return new ShortCodes(Arrays.copyOf(codes, numRows)); }
+
+		int get(int row) { return codes[row]; }
+
+		void set(int row, int code) { codes[row] = (short) code; }
+
+		int size() { return codes.length; }
+
+		int width() { return 2; }
+	}
+
+	static final class IntCodes extends Codes {
+		final int[] codes;
+
+		IntCodes(int[] codes) { this.codes = codes; }
+
+		Codes resized(int numRows) { return new IntCodes(Arrays.copyOf(codes, numRows)); }
+
+		int get(int row) { return codes[row]; }
+
+		void set(int row, int code) { codes[row] = code; }
+
+		int size() { return codes.length; }
+
+		int width() { return 4; }
+	}
+}
@@ -0,0 +1,246 @@
+package breastCancerSurvivability;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+import weka.classifiers.trees.adtree.ReferenceInstances;
+
+public class ColumnStore {
+
+	private final Instances header;
+	private final int numRows;
+	// Nominal attributes keep their label index (-1 = missing) in 1, 2 or 4 bytes
+	// depending on their number of labels, numeric ones a double (NaN = missing)
+	private final Codes[] nominal;
+	private final double[][] numeric;
+	private final Codes classColumn;
+	private final double[] weights;
+
+	private ColumnStore(Instances header, int numRows, Codes[] nominal, double[][] numeric,
+			double[] weights) {
+		this.header = header;
+		this.numRows = numRows;
+		this.nominal = nominal;
+		this.numeric = numeric;
+		this.classColumn = nominal[header.classIndex()];
+		this.weights = weights;
+	}
+
+	static ColumnStore fromColumns(Instances header, int numRows, Codes[] nominal,
+			double[][] numeric, double[] weights) {
+		/* Wraps already decoded columns (see Snapshot); arrays are not copied. */
+		return new ColumnStore(new Instances(header, 0), numRows, nominal, numeric, weights);
+	}
+
+	public static ColumnStore fromInstances(Instances data) {
+		/** Builds the columnar copy of `data` in a single pass.
+		 * Args:
+		 *  (Instances) data: Dataset with a nominal class attribute set.
+		 *
+		 * Returns:
+		 * (ColumnStore) store: read-only table with one primitive array per attribute.
+		 */
+		if (data.classIndex() < 0 || !data.classAttribute().isNominal()) {
+			throw new IllegalArgumentException("ColumnStore needs a nominal class attribute");
+		}
+		int n = data.numInstances();
+		int numAtts = data.numAttributes();
+		Codes[] nominal = new Codes[numAtts];
+		double[][] numeric = new double[numAtts][];
+		for (int a = 0; a < numAtts; a++) {
+			if (data.attribute(a).isNominal()) {
+				nominal[a] = Codes.forCardinality(data.attribute(a).numValues(), n);
+			}
+			else if (data.attribute(a).isNumeric()) { numeric[a] = new double[n]; }
+			else {
+				throw new IllegalArgumentException("Unsupported attribute type: " + data.attribute(a).name());
+			}
+		}
+		double[] weights = null;
+		for (int i = 0; i < n; i++) {
+			Instance inst = data.instance(i);
+			for (int a = 0; a < numAtts; a++) {
+				boolean missing = inst.isMissing(a);
+				if (nominal[a] != null) { nominal[a].set(i, missing ? -1 : (int) inst.value(a)); }
+				else { numeric[a][i] = missing ? Double.NaN : inst.value(a); }
+			}
+			if (inst.weight() != 1.0) {
+				if (weights == null) { weights = filled(n, 1.0); }
+				weights[i] = inst.weight();
+			}
+		}
+		return new ColumnStore(new Instances(data, 0), n, nominal, numeric, weights);
+	}
+
+	public ColumnStore append(ColumnStore rows) {
+		/** New store with the rows of `rows` after this store's rows; this store is left unchanged.
+		 * Attributes are matched by name. Labels unknown to this store are added after
+		 * its own, so existing codes stay valid.
+		 * Args:
+		 *  (ColumnStore) rows: Rows to append, e.g. a new diagnosis year.
+		 *
+		 * Returns:
+		 * (ColumnStore) grown: existing rows (columns copied, not decoded) followed by `rows`.
+		 */
+		int numAtts = numAttributes();
+		if (rows.numAttributes() != numAtts) {
+			throw new IllegalArgumentException("Appended rows have " + rows.numAttributes()
+					+ " attributes, expected " + numAtts);
+		}
+		int n = numRows + rows.numRows;
+		ArrayList<Attribute> atts = new ArrayList<Attribute>();
+		Codes[] grownNominal = new Codes[numAtts];
+		double[][] grownNumeric = new double[numAtts][];
+		for (int a = 0; a < numAtts; a++) {
+			Attribute mine = header.attribute(a);
+			Attribute theirs = rows.header.attribute(mine.name());
+			if (theirs == null || theirs.type() != mine.type()) {
+				throw new IllegalArgumentException("Attribute " + mine.name() + " does not match");
+			}
+			int col = theirs.index();
+			if (mine.isNominal()) {
+				List<String> labels = new ArrayList<String>();
+				for (int v = 0; v < mine.numValues(); v++) { labels.add(mine.value(v)); }
+				int[] remap = new int[theirs.numValues()];
+				for (int v = 0; v < remap.length; v++) {
+					remap[v] = labels.indexOf(theirs.value(v));
+					if (remap[v] < 0) {
+						labels.add(theirs.value(v));
+						remap[v] = labels.size() - 1;
+					}
+				}
+				atts.add(labels.size() == mine.numValues() ? (Attribute) mine.copy()
+						: new Attribute(mine.name(), labels));
+				grownNominal[a] = nominal[a].grow(labels.size(), n);
+				for (int r = 0; r < rows.numRows; r++) {
+					int code = rows.code(col, r);
+					grownNominal[a].set(numRows + r, code < 0 ? -1 : remap[code]);
+				}
+			} else {
+				atts.add((Attribute) mine.copy());
+				grownNumeric[a] = Arrays.copyOf(numeric[a], n);
+				for (int r = 0; r < rows.numRows; r++) { grownNumeric[a][numRows + r] = rows.numeric(col, r); }
+			}
+		}
+		double[] grownWeights = null;
+		if (weights != null || rows.weights != null) {
+			grownWeights = filled(n, 1.0);
+			for (int r = 0; r < numRows; r++) { grownWeights[r] = weight(r); }
+			for (int r = 0; r < rows.numRows; r++) { grownWeights[numRows + r] = rows.weight(r); }
+		}
+		Instances merged = new Instances(header.relationName(), atts, 0);
+		merged.setClassIndex(header.classIndex());
+		return new ColumnStore(merged, n, grownNominal, grownNumeric, grownWeights);
+	}
+
+	private static double[] filled(int n, double value) {
+		double[] array = new double[n];
+		Arrays.fill(array, value);
+		return array;
+	}
+
+	public Instances header() {
+		return new Instances(header, 0);
+	}
+
+	public int numRows() {
+		return numRows;
+	}
+
+	public int numAttributes() {
+		return header.numAttributes();
+	}
+
+	public Attribute attribute(int att) {
+		return header.attribute(att);
+	}
+
+	public int attributeIndex(String name) {
+		Attribute att = header.attribute(name);
+		if (att == null) { throw new IllegalArgumentException("Unknown attribute: " + name); }
+		return att.index();
+	}
+
+	public boolean isNominal(int att) {
+		return nominal[att] != null;
+	}
+
+	public int code(int att, int row) {
+		return nominal[att].get(row);
+	}
+
+	public double numeric(int att, int row) {
+		return numeric[att][row];
+	}
+
+	public double value(int att, int row) {
+		/* Value as weka stores it in an Instance (label index or number, `?` as NaN). */
+		if (nominal[att] != null) {
+			int c = nominal[att].get(row);
+			return c < 0 ? Utils.missingValue() : c;
+		}
+		return numeric[att][row];
+	}
+
+	public int classCode(int row) {
+		return classColumn.get(row);
+	}
+
+	public double weight(int row) {
+		return weights == null ? 1.0 : weights[row];
+	}
+
+	Codes nominalColumn(int att) {
+		return nominal[att];
+	}
+
+	double[] numericColumn(int att) {
+		return numeric[att];
+	}
+
+	double[] weightColumn() {
+		return weights;
+	}
+
+	public int labelCode(int att, String label) {
+		/* Index of `label` within a nominal attribute, -1 if it is not declared. */
+		return header.attribute(att).indexOfValue(label);
+	}
+
+	public int[] allRows() {
+		int[] rows = new int[numRows];
+		for (int i = 0; i < numRows; i++) { rows[i] = i; }
+		return rows;
+	}
+
+	public Instance instance(int row) {
+		/* Instance reading its values straight from the columns. */
+		return new CompactInstance(this, row, weight(row));
+	}
+
+	public Instances toInstances(int[] rows) {
+		/** Materializes the selected rows, in the given order, for weka classifiers.
+		 * Args:
+		 *  (int[]) rows: Row indices into this store.
+		 *
+		 * Returns:
+		 * (Instances) data: dataset sharing this store's header.
+		 */
+		ReferenceInstances data = new ReferenceInstances(header, rows.length);
+		for (int i = 0; i < rows.length; i++) {
+			Instance inst = instance(rows[i]);
+			inst.setDataset(data);
+			data.addReference(inst);
+		}
+		return data;
+	}
+
+	public Instances toInstances() {
+		return toInstances(allRows());
+	}
+}
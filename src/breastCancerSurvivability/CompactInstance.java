@@ -0,0 +1,149 @@
+package breastCancerSurvivability;
+
+import weka.core.AbstractInstance;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Utils;
+
+public class CompactInstance extends AbstractInstance {
+	/* Instance backed by one row of a ColumnStore. Values are read from the store's
+	 * columns until the first write, which copies them into m_AttValues
+	 * (the same layout DenseInstance uses), so weka code that mutates copies still works.
+	 */
+
+	private static final long serialVersionUID = 6181409232137482410L;
+
+	private final ColumnStore store;
+	private final int row;
+
+	public CompactInstance(ColumnStore store, int row, double weight) {
+		this.store = store;
+		this.row = row;
+		m_Weight = weight;
+	}
+
+	private Object writeReplace() {
+		// Serialized models must not drag the whole store along
+		DenseInstance dense = new DenseInstance(m_Weight, toDoubleArray());
+		dense.setDataset(m_Dataset);
+		return dense;
+	}
+
+	private void materialize() {
+		if (m_AttValues == null) { m_AttValues = toDoubleArray(); }
+	}
+
+	@Override
+	public double value(int attIndex) {
+		return m_AttValues != null ? m_AttValues[attIndex] : store.value(attIndex, row);
+	}
+
+	@Override
+	public double valueSparse(int indexOfIndex) {
+		return value(indexOfIndex);
+	}
+
+	@Override
+	public int index(int position) {
+		return position;
+	}
+
+	@Override
+	public int numAttributes() {
+		return m_AttValues != null ? m_AttValues.length : store.numAttributes();
+	}
+
+	@Override
+	public int numValues() {
+		return numAttributes();
+	}
+
+	@Override
+	public void setValue(int attIndex, double value) {
+		materialize();
+		m_AttValues[attIndex] = value;
+	}
+
+	@Override
+	public void setValueSparse(int indexOfIndex, double value) {
+		setValue(indexOfIndex, value);
+	}
+
+	@Override
+	public void replaceMissingValues(double[] array) {
+		if (array == null || array.length != numAttributes()) {
+			throw new IllegalArgumentException("Unequal number of attributes!");
+		}
+		materialize();
+		for (int i = 0; i < m_AttValues.length; i++) {
+			if (isMissing(i)) { m_AttValues[i] = array[i]; }
+		}
+	}
+
+	@Override
+	public double[] toDoubleArray() {
+		if (m_AttValues != null) { return m_AttValues.clone(); }
+		double[] values = new double[store.numAttributes()];
+		for (int a = 0; a < values.length; a++) { values[a] = store.value(a, row); }
+		return values;
+	}
+
+	@Override
+	public Object copy() {
+		CompactInstance result = new CompactInstance(store, row, m_Weight);
+		result.m_AttValues = (m_AttValues == null) ? null : m_AttValues.clone();
+		result.m_Dataset = m_Dataset;
+		return result;
+	}
+
+	@Override
+	public Instance copy(double[] values) {
+		DenseInstance result = new DenseInstance(m_Weight, values);
+		result.setDataset(m_Dataset);
+		return result;
+	}
+
+	@Override
+	public Instance mergeInstance(Instance inst) {
+		return new DenseInstance(m_Weight, toDoubleArray()).mergeInstance(inst);
+	}
+
+	@Override
+	public String toStringNoWeight() {
+		return toStringNoWeight(AbstractInstance.s_numericAfterDecimalPoint);
+	}
+
+	@Override
+	public String toStringNoWeight(int afterDecimalPoint) {
+		StringBuffer text = new StringBuffer();
+		for (int i = 0; i < numAttributes(); i++) {
+			if (i > 0) { text.append(","); }
+			text.append(toString(i, afterDecimalPoint));
+		}
+		return text.toString();
+	}
+
+	@Override
+	protected void forceDeleteAttributeAt(int position) {
+		materialize();
+		double[] values = new double[m_AttValues.length - 1];
+		System.arraycopy(m_AttValues, 0, values, 0, position);
+		System.arraycopy(m_AttValues, position + 1, values, position, values.length - position);
+		m_AttValues = values;
+	}
+
+	@Override
+	protected void forceInsertAttributeAt(int position) {
+		materialize();
+		double[] values = new double[m_AttValues.length + 1];
+		System.arraycopy(m_AttValues, 0, values, 0, position);
+		values[position] = Utils.missingValue();
+		System.arraycopy(m_AttValues, position, values, position + 1, m_AttValues.length - position);
+		m_AttValues = values;
+	}
+
+	@Override
+	public String getRevision() {
+		return "1";
+	}
+}
@@ -0,0 +1,307 @@
+package breastCancerSurvivability;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.function.DoubleSupplier;
+
+import weka.core.Instances;
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+import weka.classifiers.CostMatrix;
+import weka.classifiers.meta.CostSensitiveClassifier;
+import weka.classifiers.evaluation.Evaluation;
+
+public class CostSearch {
+
+	public static final double[] COSTS = {0.25, 0.5, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10,
+			11, 12, 13, 14, 15, 16, 17, 18, 19, 20};
+
+	public static class CVResult {
+		/* Mean per-fold AUC of a cross-validation, or its upper bound if it was abandoned. */
+		public final double AUC;
+		public final int folds;
+		public final boolean pruned;
+
+		CVResult(double AUC, int folds, boolean pruned) {
+			this.AUC = AUC;
+			this.folds = folds;
+			this.pruned = pruned;
+		}
+
+		public String status() {
+			return pruned ? "pruned" : "done";
+		}
+	}
+
+	private final CostSensitiveClassifier template;
+	private final Instances data;
+	private int numFolds = 5;
+	private int threads = Parallel.threads();
+	private EvaluationCache cache = null;
+	private String config = null;
+
+	public CostSearch(CostSensitiveClassifier template, Instances data) {
+		/** Grid search of the FP/FN costs of a meta-classifier.
+		 * Args:
+		 *  (CostSensitiveClassifier) template: Meta-classifier; each evaluation works
+		 *  	on its own copy and cost matrix, so `template` is never modified.
+		 *  (Instances) data: Dataset to cross-validate on.
+		 */
+		this.template = template;
+		this.data = data;
+	}
+
+	public void setNumFolds(int numFolds) {
+		this.numFolds = numFolds;
+		this.config = null;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public void setCache(EvaluationCache cache) {
+		/* Reuse (and record) AUCs of earlier evaluations of equivalent costs (EvaluationCache.costs). */
+		this.cache = cache;
+	}
+
+	private String config() throws Exception {
+		if (config == null) { config = EvaluationCache.config(template, data, numFolds); }
+		return config;
+	}
+
+	private String costs(double FP, double FN) throws Exception {
+		return EvaluationCache.costs(template.getCostMatrix(), FP, FN);
+	}
+
+	public static CostSensitiveClassifier withCosts(CostSensitiveClassifier template,
+			double FP, double FN) throws Exception {
+		/* Untrained copy of `template` with its own cost matrix set to (FP, FN). */
+		CostSensitiveClassifier cla = (CostSensitiveClassifier) AbstractClassifier.makeCopy(template);
+		CostMatrix CM = new CostMatrix(template.getCostMatrix());
+		Hyperparams.setCostMatrix(CM, FP, FN);
+		cla.setCostMatrix(CM);
+		return cla;
+	}
+
+	public static double crossValidatedAUC(Classifier cla, Instances data, int numFolds, long seed)
+			throws Exception {
+		/* AUC of the pooled predictions of a `numFolds` cross-validation drawn from `seed`. */
+		Evaluation eval = new Evaluation(data);
+		eval.crossValidateModel(cla, data, numFolds, new Random(seed));
+		return AUCEngine.local().area(eval.predictions());
+	}
+
+	public static CVResult crossValidate(Classifier cla, Instances data, int numFolds, long seed,
+			DoubleSupplier incumbent) throws Exception {
+		/** Cross-validation with the folds of Evaluation.crossValidateModel, scored by the
+		 * mean AUC of the folds, that stops as soon as it cannot beat `incumbent`.
+		 * Args:
+		 *  (Classifier) cla: Untrained classifier, copied for every fold.
+		 *  (Instances) data: Dataset to cross-validate on.
+		 *  (int) numFolds: Number of folds.
+		 *  (long) seed: Seed of the fold split.
+		 *  (DoubleSupplier) incumbent: Best mean AUC so far, read after every fold.
+		 *
+		 * Returns:
+		 * (CVResult) result: if pruned, AUC is the bound that fell below the incumbent.
+		 */
+		Random random = new Random(seed);
+		Instances folds = new Instances(data);
+		folds.randomize(random);
+		if (folds.classAttribute().isNominal()) { folds.stratify(numFolds); }
+		Evaluation eval = new Evaluation(data);
+		double sum = 0.0;
+		int scored = 0;
+		for (int f = 0; f < numFolds; f++) {
+			// Same draws from `random` as crossValidateModel, so the folds are identical
+			Instances train = folds.trainCV(numFolds, f, random);
+			eval.setPriors(train);
+			Classifier copy = AbstractClassifier.makeCopy(cla);
+			copy.buildClassifier(train);
+			// The prediction list is only created by the first recorded prediction
+			int from = (eval.predictions() == null) ? 0 : eval.predictions().size();
+			eval.evaluateModel(copy, folds.testCV(numFolds, f));
+			double AUC = AUCEngine.local().area(eval.predictions().subList(from, eval.predictions().size()));
+			// Single-class folds have no AUC and do not count in the mean
+			if (!Double.isNaN(AUC)) {
+				sum += AUC;
+				scored++;
+			}
+			// Every remaining fold scoring a perfect 1
+			int remaining = numFolds - f - 1;
+			double bound = (sum + remaining) / (scored + remaining);
+			if (remaining > 0 && bound < incumbent.getAsDouble()) {
+				return new CVResult(bound, f + 1, true);
+			}
+		}
+		return new CVResult(sum / scored, numFolds, false);
+	}
+
+	public CVResult[][][] pruningGrid(long[] seeds) throws Exception {
+		/** grid() scored by mean fold AUC, abandoning every cell that can no longer beat
+		 * the best cell of its own or an earlier seed. Pruned cells cannot change the
+		 * running best, so the per-seed best rows do not depend on scheduling.
+		 * The evaluation cache is not used, as it stores pooled AUCs.
+		 *
+		 * Returns:
+		 * (CVResult[][][]) results: results[seed][FP][FN], indices into `seeds` and COSTS.
+		 */
+		return pruningGrid(seeds, 0.0);
+	}
+
+	public CVResult[][][] pruningGrid(long[] seeds, final double previousBest) throws Exception {
+		/* pruningGrid(seeds) continuing a sweep whose earlier seeds' best AUC is `previousBest`. */
+		final double[] best = new double[seeds.length];
+		List<Callable<CVResult>> tasks = new ArrayList<Callable<CVResult>>();
+		Map<String, Integer> taskOf = new HashMap<String, Integer>();
+		int[][][] cell = new int[seeds.length][COSTS.length][COSTS.length];
+		for (int s = 0; s < seeds.length; s++) {
+			for (int FP = 0; FP < COSTS.length; FP++) {
+				for (int FN = 0; FN < COSTS.length; FN++) {
+					String key = seeds[s] + "/" + costs(COSTS[FP], COSTS[FN]);
+					Integer task = taskOf.get(key);
+					if (task == null) {
+						task = tasks.size();
+						taskOf.put(key, task);
+						final int idx = s;
+						final long seed = seeds[s];
+						final double fp = COSTS[FP], fn = COSTS[FN];
+						final DoubleSupplier incumbent = new DoubleSupplier() {
+							public double getAsDouble() {
+								synchronized (best) {
+									double b = previousBest;
+									for (int i = 0; i <= idx; i++) { b = Math.max(b, best[i]); }
+									return b;
+								}
+							}
+						};
+						tasks.add(new Callable<CVResult>() {
+							public CVResult call() throws Exception {
+								CVResult result = crossValidate(withCosts(template, fp, fn), data,
+										numFolds, seed, incumbent);
+								if (!result.pruned) {
+									synchronized (best) { best[idx] = Math.max(best[idx], result.AUC); }
+								}
+								return result;
+							}
+						});
+					}
+					cell[s][FP][FN] = task;
+				}
+			}
+		}
+		List<CVResult> values = Parallel.invokeStealing(tasks, threads);
+		CVResult[][][] results = new CVResult[seeds.length][COSTS.length][COSTS.length];
+		for (int s = 0; s < seeds.length; s++) {
+			for (int FP = 0; FP < COSTS.length; FP++) {
+				for (int FN = 0; FN < COSTS.length; FN++) { results[s][FP][FN] = values.get(cell[s][FP][FN]); }
+			}
+		}
+		return results;
+	}
+
+	public double evaluate(double FP, double FN, long seed) throws Exception {
+		/* Cross-validated AUC of the (FP, FN) costs with the folds drawn from `seed`. */
+		Double cached = (cache == null) ? null : cache.get(config(), seed, costs(FP, FN));
+		if (cached != null) { return cached; }
+		double AUC = crossValidatedAUC(withCosts(template, FP, FN), data, numFolds, seed);
+		if (cache != null) { cache.put(config(), seed, costs(FP, FN), AUC); }
+		return AUC;
+	}
+
+	public CostSweep scores(long seed) throws Exception {
+		/** Cross-validates the cost-free base classifier once with the folds of `seed`.
+		 * In minimize-expected-cost mode the meta-classifier trains the base one on the
+		 * unweighted data, so these are the probabilities every cost pair would see.
+		 */
+		Evaluation eval = new Evaluation(data);
+		Classifier base = AbstractClassifier.makeCopy(template.getClassifier());
+		eval.crossValidateModel(base, data, numFolds, new Random(seed));
+		return new CostSweep(eval.predictions());
+	}
+
+	public double[][] sweep(long seed) throws Exception {
+		/* AUC[FP][FN] over COSTS for one seed, from a single cross-validation (zero diagonal only). */
+		double[][] AUC = new double[COSTS.length][COSTS.length];
+		CostSweep scores = null;
+		for (int FP = 0; FP < COSTS.length; FP++) {
+			for (int FN = 0; FN < COSTS.length; FN++) {
+				Double cached = (cache == null) ? null : cache.get(config(), seed, costs(COSTS[FP], COSTS[FN]));
+				if (cached != null) {
+					AUC[FP][FN] = cached;
+					continue;
+				}
+				if (scores == null) { scores = scores(seed); }
+				AUC[FP][FN] = scores.AUC(COSTS[FP], COSTS[FN]);
+				if (cache != null) { cache.put(config(), seed, costs(COSTS[FP], COSTS[FN]), AUC[FP][FN]); }
+			}
+		}
+		return AUC;
+	}
+
+	public double[][][] grid(long[] seeds) throws Exception {
+		/** Evaluates every (seed, FP, FN) cell of the COSTS grid in parallel.
+		 * Each cell only depends on its own seed, so the values are those of a
+		 * sequential sweep regardless of scheduling. With a zero cost-matrix diagonal,
+		 * cells whose costs differ by a power-of-two factor (EvaluationCache.costs) get
+		 * the value of the first one evaluated.
+		 *
+		 * Returns:
+		 * (double[][][]) AUC: AUC[seed][FP][FN], indices into `seeds` and COSTS.
+		 */
+		// CostSweep's decision rule p0 * FN < p1 * FP assumes a zero diagonal
+		if (template.getMinimizeExpectedCost() && EvaluationCache.scaleFree(template.getCostMatrix())) {
+			return sweepGrid(seeds);
+		}
+		// Equivalent cells (EvaluationCache.costs) are evaluated once
+		List<Callable<Double>> tasks = new ArrayList<Callable<Double>>();
+		Map<String, Integer> taskOf = new HashMap<String, Integer>();
+		int[][][] cell = new int[seeds.length][COSTS.length][COSTS.length];
+		for (int s = 0; s < seeds.length; s++) {
+			for (int FP = 0; FP < COSTS.length; FP++) {
+				for (int FN = 0; FN < COSTS.length; FN++) {
+					String key = seeds[s] + "/" + costs(COSTS[FP], COSTS[FN]);
+					Integer task = taskOf.get(key);
+					if (task == null) {
+						task = tasks.size();
+						taskOf.put(key, task);
+						final long seed = seeds[s];
+						final double fp = COSTS[FP], fn = COSTS[FN];
+						tasks.add(new Callable<Double>() {
+							public Double call() throws Exception {
+								return evaluate(fp, fn, seed);
+							}
+						});
+					}
+					cell[s][FP][FN] = task;
+				}
+			}
+		}
+		List<Double> values = Parallel.invokeStealing(tasks, threads);
+		double[][][] AUC = new double[seeds.length][COSTS.length][COSTS.length];
+		for (int s = 0; s < seeds.length; s++) {
+			for (int FP = 0; FP < COSTS.length; FP++) {
+				for (int FN = 0; FN < COSTS.length; FN++) { AUC[s][FP][FN] = values.get(cell[s][FP][FN]); }
+			}
+		}
+		return AUC;
+	}
+
+	private double[][][] sweepGrid(long[] seeds) throws Exception {
+		// Costs only move the decision threshold: one cross-validation per seed
+		List<Callable<double[][]>> tasks = new ArrayList<Callable<double[][]>>();
+		for (final long seed : seeds) {
+			tasks.add(new Callable<double[][]>() {
+				public double[][] call() throws Exception {
+					return sweep(seed);
+				}
+			});
+		}
+		return Parallel.invokeStealing(tasks, threads).toArray(new double[seeds.length][][]);
+	}
+}
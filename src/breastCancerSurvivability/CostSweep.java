@@ -0,0 +1,118 @@
+package breastCancerSurvivability;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import weka.classifiers.evaluation.NominalPrediction;
+import weka.classifiers.evaluation.Prediction;
+
+public class CostSweep {
+	/* Cross-validated class probabilities of a binary classifier, sorted once so the
+	 * minimum-expected-cost decisions of any (FP, FN) pair are read off by binary search.
+	 * CostSensitiveClassifier in that mode predicts class 1 iff p0 * FN < p1 * FP,
+	 * and its probabilities do not depend on the costs.
+	 */
+
+	// Distributions further than this from summing to 1 are decided one by one
+	private static final double EPS = 1e-9;
+
+	private final double[] p0;
+	private final double[] p1;
+	private final int[] actual;
+	private final double[] weight;
+	// Ascending p1; cumulative weight of actual class 0 / 1 before each position
+	private final double[] neg;
+	private final double[] pos;
+	private final double[][] irregular;
+
+	public CostSweep(ArrayList<Prediction> predictions) {
+		/** Args:
+		 *  (ArrayList) predictions: Predictions of the cost-free base classifier, e.g.
+		 *  	Evaluation.predictions() after cross-validating it.
+		 */
+		ArrayList<double[]> regular = new ArrayList<double[]>();
+		ArrayList<double[]> other = new ArrayList<double[]>();
+		for (Prediction p : predictions) {
+			if (p.actual() == Prediction.MISSING_VALUE || p.weight() <= 0) { continue; }
+			double[] dist = ((NominalPrediction) p).distribution();
+			double[] row = {dist[0], dist[1], p.actual(), p.weight()};
+			if (Math.abs(dist[0] + dist[1] - 1) <= EPS) { regular.add(row); }
+			else { other.add(row); }
+		}
+		double[][] rows = regular.toArray(new double[regular.size()][]);
+		Arrays.sort(rows, new Comparator<double[]>() {
+			public int compare(double[] a, double[] b) { return Double.compare(a[1], b[1]); }
+		});
+		int n = rows.length;
+		p0 = new double[n];
+		p1 = new double[n];
+		actual = new int[n];
+		weight = new double[n];
+		neg = new double[n + 1];
+		pos = new double[n + 1];
+		for (int i = 0; i < n; i++) {
+			p0[i] = rows[i][0];
+			p1[i] = rows[i][1];
+			actual[i] = (int) rows[i][2];
+			weight[i] = rows[i][3];
+			neg[i + 1] = neg[i] + (rows[i][2] == 0 ? rows[i][3] : 0);
+			pos[i + 1] = pos[i] + (rows[i][2] == 1 ? rows[i][3] : 0);
+		}
+		irregular = other.toArray(new double[other.size()][]);
+	}
+
+	private static boolean predictsOne(double p0, double p1, double FP, double FN) {
+		// Expected costs as CostMatrix computes them; ties go to class 0 (Utils.minIndex)
+		return p0 * FN < p1 * FP;
+	}
+
+	private int lowerBound(double t) {
+		int lo = 0, hi = p1.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (p1[mid] < t) { lo = mid + 1; } else { hi = mid; }
+		}
+		return lo;
+	}
+
+	public double[][] confusion(double FP, double FN) {
+		/** Weighted confusion matrix of the minimum-expected-cost decisions.
+		 * Returns:
+		 * (double[][]) matrix: matrix[actual][predicted], as Evaluation.confusionMatrix().
+		 */
+		// Decisions only change around p1 = FN / (FN + FP); rows near it are decided exactly
+		double t = FN / (FN + FP);
+		int lo = lowerBound(t - EPS), hi = lowerBound(t + EPS);
+		double[][] matrix = new double[2][2];
+		matrix[0][0] = neg[lo];
+		matrix[1][0] = pos[lo];
+		matrix[0][1] = neg[p1.length] - neg[hi];
+		matrix[1][1] = pos[p1.length] - pos[hi];
+		for (int i = lo; i < hi; i++) {
+			matrix[actual[i]][predictsOne(p0[i], p1[i], FP, FN) ? 1 : 0] += weight[i];
+		}
+		for (double[] row : irregular) {
+			matrix[(int) row[2]][predictsOne(row[0], row[1], FP, FN) ? 1 : 0] += row[3];
+		}
+		return matrix;
+	}
+
+	public double cost(double FP, double FN) {
+		/* Total misclassification cost of the decisions. */
+		double[][] matrix = confusion(FP, FN);
+		return FP * matrix[1][0] + FN * matrix[0][1];
+	}
+
+	public double AUC(double FP, double FN) {
+		/** ROC area of the hard 0/1 decisions, as ThresholdCurve.getROCArea computes it
+		 * for class 1 over two thresholds: 0.5 * (1 + TPR - FPR).
+		 */
+		double[][] matrix = confusion(FP, FN);
+		double totalPos = matrix[1][0] + matrix[1][1];
+		double totalNeg = matrix[0][0] + matrix[0][1];
+		double tp = matrix[1][1], fp = matrix[0][1];
+		double area = (totalPos - tp) * (0.5 * (totalNeg - fp)) + tp * ((totalNeg - fp) + 0.5 * fp);
+		return area / (totalNeg * totalPos);
+	}
+}
@@ -0,0 +1,219 @@
+package breastCancerSurvivability;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import weka.classifiers.CostMatrix;
+import weka.core.Instances;
+
+public class CountCube {
+	/* Counts (CountTable) of every stage x year of diagnosis x CV fold cell of a dataset,
+	 * taken in one pass. The counts of any stage, year window and fold are sums of cells,
+	 * and a training fold is its window minus the test fold, so every count-based model
+	 * (CountedNaiveBayes) of a cross-validation costs array additions, not a pass over rows.
+	 */
+
+	private final ColumnStore store;
+	private final int numFolds;
+	// [stage code + 1][year code + 1][fold], slot 0 holding missing stages / years; null if empty
+	private final CountTable[][][] cells;
+	private final int[][][][] rows;
+	private final int[][][] sizes;
+
+	public CountCube(ColumnStore store, int[] foldOf, int numFolds) {
+		/** Args:
+		 *  (ColumnStore) store: Dataset to count.
+		 *  (int[]) foldOf: Test fold of every row of `store`, -1 to leave the row out.
+		 *  (int) numFolds: Number of folds.
+		 */
+		this.store = store;
+		this.numFolds = numFolds;
+		int stageCol = store.attributeIndex(RowFilter.STAGE);
+		int yearCol = store.attributeIndex(RowFilter.YEAR);
+		int numStages = store.attribute(stageCol).numValues() + 1;
+		int numYears = store.attribute(yearCol).numValues() + 1;
+		cells = new CountTable[numStages][numYears][numFolds];
+		rows = new int[numStages][numYears][numFolds][];
+		sizes = new int[numStages][numYears][numFolds];
+		for (int r = 0; r < store.numRows(); r++) {
+			int f = foldOf[r];
+			if (f < 0) { continue; }
+			int s = store.code(stageCol, r) + 1;
+			int y = store.code(yearCol, r) + 1;
+			if (cells[s][y][f] == null) {
+				cells[s][y][f] = new CountTable(store.header());
+				rows[s][y][f] = new int[16];
+			} else if (sizes[s][y][f] == rows[s][y][f].length) {
+				rows[s][y][f] = Arrays.copyOf(rows[s][y][f], 2 * sizes[s][y][f]);
+			}
+			cells[s][y][f].add(store, r);
+			rows[s][y][f][sizes[s][y][f]++] = r;
+		}
+	}
+
+	public static int[] folds(CVFolds folds) {
+		/* foldOf of the rows of folds.data(), in the store ColumnStore.fromInstances(folds.data()) gives. */
+		int[] foldOf = new int[folds.data().numInstances()];
+		for (int f = 0; f < folds.numFolds(); f++) {
+			for (int row : folds.testRows(f)) { foldOf[row] = f; }
+		}
+		return foldOf;
+	}
+
+	public static int[] stratifiedFolds(ColumnStore store, int numFolds, long seed) {
+		/** Random fold assignment dealt round-robin within every (stage, year, class) cell,
+		 * so the folds of any stage and year window are stratified too.
+		 */
+		int stageCol = store.attributeIndex(RowFilter.STAGE);
+		int yearCol = store.attributeIndex(RowFilter.YEAR);
+		int numYears = store.attribute(yearCol).numValues() + 1;
+		int numClasses = store.header().numClasses() + 1;
+		int[] order = store.allRows();
+		Random random = new Random(seed);
+		for (int j = order.length - 1; j > 0; j--) {
+			int k = random.nextInt(j + 1);
+			int tmp = order[j];
+			order[j] = order[k];
+			order[k] = tmp;
+		}
+		int[] next = new int[(store.attribute(stageCol).numValues() + 1) * numYears * numClasses];
+		int[] foldOf = new int[store.numRows()];
+		for (int r : order) {
+			int cell = ((store.code(stageCol, r) + 1) * numYears + store.code(yearCol, r) + 1) * numClasses
+					+ store.classCode(r) + 1;
+			foldOf[r] = next[cell]++ % numFolds;
+		}
+		return foldOf;
+	}
+
+	public int numFolds() {
+		return numFolds;
+	}
+
+	public Instances header() {
+		return store.header();
+	}
+
+	private boolean[][] slots(int stage, int firstYear, int lastYear) {
+		/* Stage and year slots of the rows Dataset.windowFilter(firstYear, lastYear, stage) keeps. */
+		RowFilter filter = Dataset.windowFilter(firstYear, lastYear, stage < 0 ? new int[0] : new int[] {stage});
+		return new boolean[][] {
+				slots(filter.stageMask(store.attribute(store.attributeIndex(RowFilter.STAGE))), filter.keepsMissingStage()),
+				slots(filter.yearMask(store.attribute(store.attributeIndex(RowFilter.YEAR))), filter.keepsMissingYear())};
+	}
+
+	private static boolean[] slots(boolean[] mask, boolean keepMissing) {
+		boolean[] in = new boolean[mask.length + 1];
+		in[0] = keepMissing;
+		System.arraycopy(mask, 0, in, 1, mask.length);
+		return in;
+	}
+
+	public CountTable counts(int stage, int firstYear, int lastYear, int fold) {
+		/** Counts of the rows of Dataset.windowFilter(firstYear, lastYear, stage), the
+		 * window PartitionIndex.window() selects: missing stages and years are kept.
+		 * Args:
+		 *  (int) stage: SEER-historic-stage-A value, or -1 for every stage.
+		 *  (int) firstYear: First year of the window; Integer.MIN_VALUE for no lower bound.
+		 *  (int) lastYear: Last year of the window; Integer.MAX_VALUE for no upper bound.
+		 *  (int) fold: Test fold to count, or -1 for all of them.
+		 *
+		 * Returns:
+		 * (CountTable) counts: a new table, free to modify.
+		 */
+		CountTable table = new CountTable(store.header());
+		boolean[][] in = slots(stage, firstYear, lastYear);
+		for (int s = 0; s < cells.length; s++) {
+			if (!in[0][s]) { continue; }
+			for (int y = 0; y < in[1].length; y++) {
+				if (!in[1][y]) { continue; }
+				for (int f = 0; f < numFolds; f++) {
+					if ((fold < 0 || f == fold) && cells[s][y][f] != null) { table.add(cells[s][y][f]); }
+				}
+			}
+		}
+		return table;
+	}
+
+	public CountTable trainCounts(int stage, int firstYear, int lastYear, int fold) {
+		/* Counts of the training fold: the window minus test fold `fold`. */
+		CountTable table = counts(stage, firstYear, lastYear, -1);
+		table.subtract(counts(stage, firstYear, lastYear, fold));
+		return table;
+	}
+
+	public int[] rows(int stage, int firstYear, int lastYear, int fold) {
+		/* Rows counted by counts(stage, firstYear, lastYear, fold), in ascending order. */
+		boolean[][] in = slots(stage, firstYear, lastYear);
+		int n = 0;
+		int[] selected = new int[16];
+		for (int s = 0; s < cells.length; s++) {
+			if (!in[0][s]) { continue; }
+			for (int y = 0; y < in[1].length; y++) {
+				if (!in[1][y]) { continue; }
+				for (int f = 0; f < numFolds; f++) {
+					if ((fold >= 0 && f != fold) || cells[s][y][f] == null) { continue; }
+					if (n + sizes[s][y][f] > selected.length) {
+						selected = Arrays.copyOf(selected, Math.max(2 * selected.length, n + sizes[s][y][f]));
+					}
+					System.arraycopy(rows[s][y][f], 0, selected, n, sizes[s][y][f]);
+					n += sizes[s][y][f];
+				}
+			}
+		}
+		selected = Arrays.copyOf(selected, n);
+		Arrays.sort(selected);
+		return selected;
+	}
+
+	public Instances instances(int stage, int firstYear, int lastYear, int fold) {
+		return store.toInstances(rows(stage, firstYear, lastYear, fold));
+	}
+
+	public SlidingNaiveBayes[] slidingFolds(int stage, CostMatrix cost) {
+		/** One SlidingNaiveBayes per fold, over the rows of `stage` outside that fold, for
+		 * crossValidatedAUC to slide along consecutive windows a year at a time.
+		 * Args:
+		 *  (int) stage: SEER-historic-stage-A value, or -1 for every stage.
+		 *  (CostMatrix) cost: Cost matrix to reweight with, or null.
+		 */
+		int[] all = rows(stage, Integer.MIN_VALUE, Integer.MAX_VALUE, -1);
+		SlidingNaiveBayes[] models = new SlidingNaiveBayes[numFolds];
+		for (int f = 0; f < numFolds; f++) {
+			int[] test = rows(stage, Integer.MIN_VALUE, Integer.MAX_VALUE, f);
+			int[] train = new int[all.length - test.length];
+			int n = 0, t = 0;
+			for (int row : all) {
+				if (t < test.length && test[t] == row) { t++; } else { train[n++] = row; }
+			}
+			models[f] = new SlidingNaiveBayes(store, train);
+			models[f].setCostMatrix(cost);
+		}
+		return models;
+	}
+
+	public double crossValidatedAUC(SlidingNaiveBayes[] models, int stage, int firstYear, int lastYear)
+			throws Exception {
+		/** AUC of the predictions of every test fold of a window pooled, as
+		 * Evaluation.crossValidateModel + ThresholdCurve.getROCArea give it, but over this cube's folds.
+		 * Args:
+		 *  (SlidingNaiveBayes[]) models: slidingFolds(stage, cost), slid to the window fold by fold.
+		 *  (int) stage, firstYear, lastYear: Window, as in counts().
+		 */
+		AUCEngine AUC = AUCEngine.local();
+		AUC.clear();
+		int positive = store.header().numClasses() - 1;
+		for (int f = 0; f < numFolds; f++) {
+			int[] rows = rows(stage, firstYear, lastYear, f);
+			if (rows.length == 0) { continue; }
+			models[f].slideTo(firstYear, lastYear);
+			Instances test = store.toInstances(rows);
+			for (int i = 0; i < rows.length; i++) {
+				int c = store.classCode(rows[i]);
+				AUC.add(models[f].distributionForInstance(test.instance(i))[positive],
+						c < 0 ? -1 : (c == positive ? 1 : 0), store.weight(rows[i]));
+			}
+		}
+		return AUC.area();
+	}
+}
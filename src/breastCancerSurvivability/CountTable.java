@@ -0,0 +1,96 @@
+package breastCancerSurvivability;
+
+import weka.core.Instances;
+
+public class CountTable {
+	/* Class-conditional weight of every (nominal attribute, value) of a set of rows, plus
+	 * the weight per class: the sufficient statistics of a nominal Naive Bayes model.
+	 * Tables of disjoint row sets are combined by adding them, and a subset's table is
+	 * removed by subtracting it.
+	 */
+
+	private final int numClasses;
+	private final int classIndex;
+	// Start of each attribute's [value][class] block in `counts`, -1 if not counted
+	private final int[] offset;
+	private final double[] counts;
+	private final double[] classCounts;
+
+	public CountTable(Instances header) {
+		/** Empty table for datasets with the structure of `header` (class index set).
+		 * Numeric attributes are not counted.
+		 */
+		numClasses = header.numClasses();
+		classIndex = header.classIndex();
+		offset = new int[header.numAttributes()];
+		int size = 0;
+		for (int a = 0; a < offset.length; a++) {
+			if (a == classIndex || !header.attribute(a).isNominal()) {
+				offset[a] = -1;
+			} else {
+				offset[a] = size;
+				size += header.attribute(a).numValues() * numClasses;
+			}
+		}
+		counts = new double[size];
+		classCounts = new double[numClasses];
+	}
+
+	private CountTable(CountTable other) {
+		numClasses = other.numClasses;
+		classIndex = other.classIndex;
+		offset = other.offset;
+		counts = other.counts.clone();
+		classCounts = other.classCounts.clone();
+	}
+
+	public static CountTable of(ColumnStore store, int[] rows) {
+		CountTable table = new CountTable(store.header());
+		for (int row : rows) { table.add(store, row); }
+		return table;
+	}
+
+	public CountTable copy() {
+		return new CountTable(this);
+	}
+
+	public void add(ColumnStore store, int row) {
+		/* Counts one row; like NaiveBayes, rows without class are ignored and
+		 * missing attribute values are not counted. */
+		int c = store.classCode(row);
+		if (c < 0) { return; }
+		double w = store.weight(row);
+		classCounts[c] += w;
+		for (int a = 0; a < offset.length; a++) {
+			if (offset[a] < 0) { continue; }
+			int v = store.code(a, row);
+			if (v >= 0) { counts[offset[a] + v * numClasses + c] += w; }
+		}
+	}
+
+	public void add(CountTable other) {
+		for (int i = 0; i < counts.length; i++) { counts[i] += other.counts[i]; }
+		for (int c = 0; c < numClasses; c++) { classCounts[c] += other.classCounts[c]; }
+	}
+
+	public void subtract(CountTable other) {
+		for (int i = 0; i < counts.length; i++) { counts[i] -= other.counts[i]; }
+		for (int c = 0; c < numClasses; c++) { classCounts[c] -= other.classCounts[c]; }
+	}
+
+	public boolean counts(int att) {
+		return offset[att] >= 0;
+	}
+
+	public double count(int att, int value, int cls) {
+		return counts[offset[att] + value * numClasses + cls];
+	}
+
+	public double classCount(int cls) {
+		return classCounts[cls];
+	}
+
+	public int numClasses() {
+		return numClasses;
+	}
+}
@@ -0,0 +1,127 @@
+package breastCancerSurvivability;
+
+import java.util.Arrays;
+
+import weka.core.Instances;
+import weka.core.Utils;
+import weka.classifiers.Classifier;
+import weka.classifiers.CostMatrix;
+import weka.classifiers.bayes.NaiveBayes;
+import weka.classifiers.meta.CostSensitiveClassifier;
+import weka.estimators.DiscreteEstimator;
+import weka.estimators.Estimator;
+
+public class CountedNaiveBayes extends NaiveBayes {
+	/* NaiveBayes trained from the class-conditional counts of its training rows
+	 * (CountTable) instead of the rows themselves, so models of row sets that are sums
+	 * or differences of counted ones cost O(attributes x values) to build.
+	 */
+
+	private static final long serialVersionUID = 4409281746452196640L;
+
+	private CostMatrix cost = null;
+
+	public static boolean countable(ColumnStore store) {
+		/* True if every attribute but the class is nominal. */
+		for (int a = 0; a < store.numAttributes(); a++) {
+			if (a != store.header().classIndex() && !store.isNominal(a)) { return false; }
+		}
+		return true;
+	}
+
+	public static boolean emulates(Classifier cla) {
+		/** True if `cla` is a default NaiveBayes, or one wrapped in a reweighting
+		 * CostSensitiveClassifier, whose model train() can reproduce.
+		 */
+		if (cla instanceof CostSensitiveClassifier) {
+			CostSensitiveClassifier meta = (CostSensitiveClassifier) cla;
+			if (meta.getMinimizeExpectedCost()) { return false; }
+			cla = meta.getClassifier();
+		}
+		if (cla == null || cla.getClass() != NaiveBayes.class) { return false; }
+		NaiveBayes nb = (NaiveBayes) cla;
+		return !nb.getUseKernelEstimator() && !nb.getUseSupervisedDiscretization();
+	}
+
+	public void setCostMatrix(CostMatrix cost) {
+		/** Reweights the classes as CostSensitiveClassifier (reweighting mode) does, with
+		 * the factors of CostMatrix.applyCostMatrix, nonzero diagonal included. The model
+		 * matches its model up to floating-point rounding, counts being multiplied by the
+		 * factors rather than summed row by row.
+		 */
+		this.cost = cost;
+	}
+
+	public CostMatrix getCostMatrix() {
+		return cost;
+	}
+
+	private double[] classWeights(CountTable counts) throws Exception {
+		// Per-class weight factors of CostMatrix.applyCostMatrix (fixed costs), step by step
+		int numClasses = counts.numClasses();
+		double[] factor = new double[numClasses];
+		if (cost == null) {
+			Arrays.fill(factor, 1.0);
+			return factor;
+		}
+		// A nonzero diagonal is first subtracted from its column (CostMatrix.normalize)
+		CostMatrix matrix = cost;
+		for (int i = 0; i < numClasses; i++) {
+			if (!Utils.eq(cost.getElement(i, i), 0)) {
+				matrix = new CostMatrix(cost);
+				matrix.normalize();
+				break;
+			}
+		}
+		double[] classWeight = new double[numClasses];
+		for (int c = 0; c < numClasses; c++) { classWeight[c] = counts.classCount(c); }
+		double sumOfWeights = Utils.sum(classWeight), sumOfFactors = 0.0;
+		for (int i = 0; i < numClasses; i++) {
+			double missClassCost = 0.0;
+			for (int j = 0; j < numClasses; j++) {
+				if (Utils.sm(matrix.getElement(i, j), 0)) {
+					throw new Exception("Neg. weights in misclassification cost matrix!");
+				}
+				missClassCost += matrix.getElement(i, j);
+			}
+			factor[i] = missClassCost * sumOfWeights;
+			sumOfFactors += missClassCost * classWeight[i];
+		}
+		for (int i = 0; i < numClasses; i++) { factor[i] /= sumOfFactors; }
+		return factor;
+	}
+
+	public void train(Instances header, CountTable counts) throws Exception {
+		/** Sets the state NaiveBayes.buildClassifier would leave after training on the
+		 * rows `counts` was taken from.
+		 * Args:
+		 *  (Instances) header: Structure of the data, class index set; nominal attributes only.
+		 *  (CountTable) counts: Counts of the training rows.
+		 */
+		int numClasses = header.numClasses();
+		double[] factor = classWeights(counts);
+		m_Instances = new Instances(header, 0);
+		m_NumClasses = numClasses;
+		m_Disc = null;
+		m_Distributions = new Estimator[header.numAttributes() - 1][numClasses];
+		int attIndex = 0;
+		for (int a = 0; a < header.numAttributes(); a++) {
+			if (a == header.classIndex()) { continue; }
+			int numValues = header.attribute(a).numValues();
+			for (int c = 0; c < numClasses; c++) {
+				DiscreteEstimator estimator = new DiscreteEstimator(numValues, true);
+				for (int v = 0; v < numValues; v++) {
+					double count = counts.count(a, v, c);
+					if (count > 0) { estimator.addValue(v, count * factor[c]); }
+				}
+				m_Distributions[attIndex][c] = estimator;
+			}
+			attIndex++;
+		}
+		DiscreteEstimator classDistribution = new DiscreteEstimator(numClasses, true);
+		for (int c = 0; c < numClasses; c++) {
+			if (counts.classCount(c) > 0) { classDistribution.addValue(c, counts.classCount(c) * factor[c]); }
+		}
+		m_ClassDistribution = classDistribution;
+	}
+}
@@ -5,12 +5,26 @@ import weka.core.Instances;
 import weka.core.converters.ConverterUtils.DataSource;
 import weka.filters.Filter;
 import weka.filters.unsupervised.instance.RemoveWithValues;
+import weka.classifiers.trees.adtree.ReferenceInstances;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Random;
 
 public class Dataset {
 	
+	private static final String DATA_FILE = "/Users/ricardokleinlein/Desktop/BREAST3W.arff";
+	// Changing the cleaning rules must change this tag so old snapshots are rebuilt
+	private static final String CLEAN_TAG = "no in-situ, no missing stage";
+	// Most recent diagnoses have no `status` yet; the cutoff moves forward with each release
+	private static final int FIRST_RECENT_YEAR = 2010;
+	private static final int NUM_RECENT_YEARS = 5;
+	
+	private static ColumnStore store;
+	private static PartitionIndex index;
+	private static int recentCutoff = FIRST_RECENT_YEAR;
+	
 	public static void rmFileExists(String filename) {
 		File f = new File(filename);
 		if (f.exists() && !f.isDirectory()) { f.delete(); }
@@ -30,6 +44,59 @@ public class Dataset {
 		return data;
 	}
 	
+	public static RowFilter inSituFilter() {
+		/* Rule set dropping `in-situ` (stage 0) and missing-stage incidences. */
+		RowFilter filter = new RowFilter();
+		filter.excludeStages(0);
+		filter.setKeepMissingStage(false);
+		return filter;
+	}
+	
+	public static RowFilter cleanFilter() {
+		/* inSituFilter() plus the most recent diagnoses (2010-2014), which have no `status` yet. */
+		return cleanFilter(recentCutoff);
+	}
+	
+	public static RowFilter cleanFilter(int cutoff) {
+		RowFilter filter = inSituFilter();
+		filter.excludeYears(cutoff, cutoff + NUM_RECENT_YEARS - 1);
+		return filter;
+	}
+	
+	public static int getRecentCutoff() {
+		/* First year of diagnosis excluded as too recent by the loaded dataset. */
+		return recentCutoff;
+	}
+	
+	public static RowFilter windowFilter(int firstYear, int lastYear, int... stages) {
+		/** Rule set for a stage-specific window, as filterCumulativeYears + filterByStage.
+		 * Args:
+		 *  (int) firstYear: First year kept.
+		 *  (int) lastYear: Last year kept.
+		 *  (int...) stages: Stages kept; none keeps every stage (joint model).
+		 */
+		RowFilter filter = new RowFilter();
+		// Only years in [1973, cutoff] are ever removed, as with the former RemoveWithValues chain;
+		// an open end (Integer.MIN_VALUE / MAX_VALUE) removes nothing on its side
+		if (firstYear != Integer.MIN_VALUE) { filter.excludeYears(1973, Math.min(firstYear - 1, recentCutoff)); }
+		if (lastYear != Integer.MAX_VALUE) { filter.excludeYears(Math.max(lastYear + 1, 1973), recentCutoff); }
+		if (stages.length > 0) { filter.setStages(stages); }
+		return filter;
+	}
+	
+	public static RowFilter yearFilter(int year, int... stages) {
+		/** Rule set for a single test year, as filterByYear + filterByStage: unlike
+		 * windowFilter(year, year), every other year is removed, missing years are kept.
+		 * Args:
+		 *  (int) year: Year of diagnosis kept.
+		 *  (int...) stages: Stages kept; none keeps every stage.
+		 */
+		RowFilter filter = new RowFilter();
+		filter.setYearRange(year, year);
+		if (stages.length > 0) { filter.setStages(stages); }
+		return filter;
+	}
+	
 	private static Instances filterInSitu(Instances data) throws Exception {
 		/** Removes instances with `in-situ` stage and missing stage.
 		 * Args:
@@ -38,20 +105,7 @@ public class Dataset {
 		 * Returns:
 		 * (Instances) stageData: original dataset w/o filtered samples.
 		 */
-		int stageCol = data.attribute("SEER-historic-stage-A").index();
-		int inSituIdx = data.attribute(stageCol).indexOfValue("0") + 1;
-		
-		RemoveWithValues rmInSitu = new RemoveWithValues();
-		rmInSitu.setAttributeIndex(Integer.toString(stageCol + 1));
-		rmInSitu.setMatchMissingValues(true);
-		rmInSitu.setInvertSelection(false);
-		rmInSitu.setNominalIndices(Integer.toString(inSituIdx));
-		
-		Instances stageData = new Instances(data, 0);
-		rmInSitu.setInputFormat(data);
-		stageData = Filter.useFilter(data, rmInSitu);
-		
-		return stageData;
+		return inSituFilter().apply(data);
 	}
 
 	private static Instances filterMostRecent(Instances data) throws Exception {
@@ -62,23 +116,9 @@ public class Dataset {
 		 * Returns:
 		 * (Instances) solidData: Dataset w/o filtered (last 5 years) incidences.
 		 */
-		int yearCol = data.attribute("Year-of-diagnosis").index();
-		int year[] = {2010, 2011, 2012, 2013, 2014};
-		Instances solidData = new Instances(data);
-
-		RemoveWithValues recentYears = new RemoveWithValues();
-		recentYears.setAttributeIndex(Integer.toString(yearCol + 1));
-		recentYears.setInvertSelection(false);
-		
-		int num_recent_years = year.length;
-		
-		for (int i = 0; i < num_recent_years; i++) {
-			int yearIdx = data.attribute(yearCol).indexOfValue(Integer.toString(year[i])) + 1;
-			recentYears.setNominalIndices(Integer.toString(yearIdx));
-			recentYears.setInputFormat(data);
-			solidData = Filter.useFilter(solidData, recentYears);
-		}
-		return solidData;
+		RowFilter recentYears = new RowFilter();
+		recentYears.excludeYears(recentCutoff, recentCutoff + NUM_RECENT_YEARS - 1);
+		return recentYears.apply(data);
 	}
 
 	public static Instances filterByStage(Instances data, int stage) throws Exception{
@@ -114,63 +154,194 @@ public class Dataset {
 		return yearData;
 	}
 	
+	public static int[] filterByStage(ColumnStore store, int[] rows, int stage) {
+		/** Row-index version of filterByStage: keeps the rows of `rows` in `stage`.
+		 * Args:
+		 *  (ColumnStore) store: Table the indices refer to.
+		 *  (int[]) rows: Rows to slice.
+		 *  (int) stage: SEER-historic-stage-A value.
+		 *  
+		 * Returns:
+		 * (int[]) stageRows: selected rows, in their original order.
+		 */
+		int stageCol = store.attributeIndex("SEER-historic-stage-A");
+		int stageCode = store.labelCode(stageCol, Integer.toString(stage));
+		return selectCode(store, rows, stageCol, stageCode);
+	}
+	
+	public static int[] filterByYear(ColumnStore store, int[] rows, int year) {
+		int yearCol = store.attributeIndex("Year-of-diagnosis");
+		int yearCode = store.labelCode(yearCol, Integer.toString(year));
+		return selectCode(store, rows, yearCol, yearCode);
+	}
+	
+	public static int[] filterCumulativeYears(ColumnStore store, int[] rows, int firstYear, 
+			int lastYear) {
+		return windowFilter(firstYear, lastYear).apply(store, rows);
+	}
+	
+	private static int[] selectCode(ColumnStore store, int[] rows, int col, int code) {
+		// An undeclared label (code -1) matches no row, not the missing-value code
+		if (code < 0) { return new int[0]; }
+		int[] selected = new int[rows.length];
+		int n = 0;
+		for (int i = 0; i < rows.length; i++) {
+			if (store.code(col, rows[i]) == code) { selected[n++] = rows[i]; }
+		}
+		return Arrays.copyOf(selected, n);
+	}
+	
 	public static Instances getNInstances(Instances data, int N) throws Exception {
 		/* Return the first `N` instances from `data`.*/
 		Instances subset = new Instances(data, 0, N);
 		return subset;
 	}
 	
+	public static Instances subsample(Instances data, double fraction, long seed) {
+		/** Random `fraction` of `data`, kept in its original order, as a referencing view.
+		 * Subsamples with the same seed are nested: a smaller fraction is a subset of a larger one.
+		 */
+		if (fraction >= 1) { return data; }
+		int n = data.numInstances();
+		int[] rows = new int[n];
+		for (int i = 0; i < n; i++) { rows[i] = i; }
+		Random random = new Random(seed);
+		for (int j = n - 1; j > 0; j--) {
+			int k = random.nextInt(j + 1);
+			int tmp = rows[j];
+			rows[j] = rows[k];
+			rows[k] = tmp;
+		}
+		int[] kept = Arrays.copyOf(rows, (int) Math.ceil(fraction * n));
+		Arrays.sort(kept);
+		ReferenceInstances view = new ReferenceInstances(data, kept.length);
+		for (int i = 0; i < kept.length; i++) { view.addReference(data.instance(kept[i])); }
+		return view;
+	}
+	
 	public static Instances filterCumulativeYears(Instances data, int firstYear, int lastYear) 
 			throws Exception{
-		int originYear = 1973;
-		int finalYear = 2010;
-		int yearCol = data.attribute("Year-of-diagnosis").index();
-		Instances windowData = new Instances(data);
-		
-		RemoveWithValues rmYear = new RemoveWithValues();
-		rmYear.setAttributeIndex(Integer.toString(yearCol + 1));
-		rmYear.setInvertSelection(false);
-		
-		for (int year = originYear; year <= finalYear; year++) {
-			if (year < firstYear || year > lastYear) {
-				int yearIdx = data.attribute(yearCol).indexOfValue(Integer.toString(year)) + 1;
-				rmYear.setNominalIndices(Integer.toString(yearIdx));
-				rmYear.setInputFormat(data);
-				windowData = Filter.useFilter(windowData, rmYear);
-			}
-		}
-		return windowData;
+		return windowFilter(firstYear, lastYear).apply(data);
 	}
 	
 	public static void stratify(Instances data, int nFolds) throws Exception {
 		data.stratify(nFolds);
 	}
 
+	public static CVFolds getCVFolds(Instances data, int numFolds) {
+		/* Index-based folds; build each fold's view only when it is needed. */
+		return new CVFolds(data, numFolds);
+	}
+	
 	public static Instances[] getTrainCVFolds(Instances data, int numFolds) throws Exception {
+		CVFolds folds = getCVFolds(data, numFolds);
 		Instances trainFolds[] = new Instances[numFolds];
 		for (int f = 0; f < numFolds; f++) {
-			trainFolds[f] = data.trainCV(numFolds, f, new Random(1));
+			trainFolds[f] = folds.trainView(f);
 		}
 		return trainFolds;
 	}
 	
 	public static Instances[] getTestCVFolds(Instances data, int numFolds) throws Exception {
+		CVFolds folds = getCVFolds(data, numFolds);
 		Instances testFolds[] = new Instances[numFolds];
 		for (int f = 0; f < numFolds; f++) {
-			testFolds[f] = data.testCV(numFolds, f);
+			testFolds[f] = folds.testView(f);
 		}
 		return testFolds;
 	}
 
 	public static Instances getData() throws Exception{
-		String path = "/Users/ricardokleinlein/Desktop/";
-		String file = path + "BREAST3W.arff";
-		Instances data = getDataSource(file);
-		// Dataset removes in-situ incidences & missing stage
-		data = filterInSitu(data);
-		// Dataset removes incidences later than 2010
-		data = filterMostRecent(data);
-		return data;
+		return getStore().toInstances();
+	}
+	
+	public static ColumnStore loadStore(String file) throws Exception {
+		/** Cleaned dataset from its binary snapshot, parsing `file` only if the
+		 * snapshot is missing or stale.
+		 * Args:
+		 *  (String) file: ARFF source.
+		 *  
+		 * Returns:
+		 * (ColumnStore) cleaned: dataset w/o in-situ, missing stage & recent incidences.
+		 */
+		Snapshot snapshot = Snapshot.open(file, CLEAN_TAG);
+		if (snapshot != null) {
+			recentCutoff = snapshot.cutoff();
+			return snapshot.store();
+		}
+		// In-situ incidences, missing stage & incidences later than 2010 are
+		// dropped while reading, so they are never decoded into instances
+		Instances data = ParallelLoader.loadArff(file, cleanFilter(FIRST_RECENT_YEAR), Parallel.threads());
+		data.setClassIndex(data.attribute("status").index());
+		ColumnStore cleaned = ColumnStore.fromInstances(data);
+		recentCutoff = FIRST_RECENT_YEAR;
+		try {
+			Snapshot.write(cleaned, file, CLEAN_TAG, FIRST_RECENT_YEAR);
+		} catch (IOException e) {
+			System.err.println("Could not write snapshot: " + e.getMessage());
+		}
+		return cleaned;
+	}
+	
+	public static ColumnStore appendYear(String file, String release) throws Exception {
+		/** Adds the year that has just become solid (getRecentCutoff()) from a new SEER
+		 * release to the snapshot of `file`, and moves the cutoff one year forward.
+		 * Historical rows are neither parsed nor filtered again.
+		 * Args:
+		 *  (String) file: ARFF source of the existing snapshot.
+		 *  (String) release: ARFF of the new release, or its CSV export (.csv) with the
+		 *   columns of `file`; only its cutoff-year rows are read.
+		 *  
+		 * Returns:
+		 * (ColumnStore) grown: cleaned dataset including the new year.
+		 */
+		ColumnStore current = loadStore(file);
+		int year = recentCutoff;
+		RowFilter newYear = inSituFilter();
+		newYear.setYearRange(year, year);
+		Instances rows = release.toLowerCase().endsWith(".csv")
+				? ParallelLoader.loadCsv(release, current.header(), newYear, Parallel.threads())
+				: ParallelLoader.loadArff(release, newYear, Parallel.threads());
+		rows.setClassIndex(rows.attribute("status").index());
+		ColumnStore grown = current.append(ColumnStore.fromInstances(rows));
+		Snapshot.append(grown, current.numRows(), file, year + 1);
+		recentCutoff = year + 1;
+		if (file.equals(DATA_FILE) && store != null) {
+			if (index != null) { index = index.append(grown, store.numRows()); }
+			store = grown;
+		}
+		return grown;
+	}
+	
+	public static ColumnStore getStore() throws Exception {
+		/* Cleaned dataset, loaded once and shared by every caller. */
+		if (store == null) { store = loadStore(DATA_FILE); }
+		return store;
+	}
+	
+	public static PartitionIndex getPartitionIndex() throws Exception {
+		/* Stage and year bitmaps over getStore(), built at load time. */
+		if (index == null) { index = new PartitionIndex(getStore()); }
+		return index;
+	}
+	
+	public static Instances getWindow(PartitionIndex index, int stage, int firstYear, int lastYear) {
+		/** Stage-specific window of years from a partition index (windowFilter rules).
+		 * Args:
+		 *  (PartitionIndex) index: Index over the dataset to slice.
+		 *  (int) stage: SEER-historic-stage-A value, or -1 for every stage.
+		 *  (int) firstYear: First year of the window.
+		 *  (int) lastYear: Last year of the window.
+		 *  
+		 * Returns:
+		 * (Instances) windowData: rows in their original order.
+		 */
+		return index.store().toInstances(index.rows(stage, firstYear, lastYear));
+	}
+	
+	public static Instances getYear(PartitionIndex index, int stage, int year) {
+		/* Test slice of a single year (yearFilter) from a partition index, rows in their original order. */
+		return index.store().toInstances(index.year(stage, year).toArray());
 	}
 	
 	public static void main(String[] args) throws Exception {
@@ -0,0 +1,138 @@
+package breastCancerSurvivability;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.OptionHandler;
+import weka.core.Utils;
+import weka.classifiers.Classifier;
+import weka.classifiers.CostMatrix;
+import weka.classifiers.meta.CostSensitiveClassifier;
+
+public class EvaluationCache {
+	/* Cross-validated AUCs of cost-matrix evaluations, kept in memory and appended to a
+	 * text file so later sweeps and restarted ones never repeat an evaluation.
+	 * With a zero cost-matrix diagonal, costs differing by a power-of-two factor, e.g.
+	 * (2, 1), (4, 2) and (1, 0.5), give bit-identical training weights (and expected-cost
+	 * decisions), so they share one entry. A nonzero diagonal does not scale with FP and
+	 * FN, so there every (FP, FN) pair is an entry of its own.
+	 */
+
+	private final ConcurrentHashMap<String, Double> values = new ConcurrentHashMap<String, Double>();
+	private final BufferedWriter file;
+
+	public EvaluationCache(String filename) throws IOException {
+		/** Loads the entries of `filename`, if it exists, and appends new ones to it.
+		 * Args:
+		 *  (String) filename: Cache file; a truncated last line is ignored.
+		 */
+		File f = new File(filename);
+		if (f.isFile()) {
+			BufferedReader in = new BufferedReader(new FileReader(f));
+			try {
+				String line;
+				while ((line = in.readLine()) != null) {
+					int tab = line.lastIndexOf('\t');
+					if (tab <= 0) { continue; }
+					try {
+						values.put(line.substring(0, tab), Double.valueOf(line.substring(tab + 1)));
+					} catch (NumberFormatException e) {
+						// Torn write from an interrupted run
+					}
+				}
+			} finally {
+				in.close();
+			}
+		}
+		file = new BufferedWriter(new FileWriter(f, true));
+	}
+
+	public static long fingerprint(Instances data) {
+		/* 64-bit hash of the header, values and weights of `data`, in row order. */
+		long h = mix(0x9E3779B97F4A7C15L, data.stringFreeStructure().toString());
+		h = mix(h, data.classIndex());
+		for (int i = 0; i < data.numInstances(); i++) {
+			Instance inst = data.instance(i);
+			for (int a = 0; a < inst.numAttributes(); a++) {
+				h = mix(h, Double.doubleToLongBits(inst.value(a)));
+			}
+			h = mix(h, Double.doubleToLongBits(inst.weight()));
+		}
+		return h;
+	}
+
+	private static long mix(long h, String s) {
+		for (int i = 0; i < s.length(); i++) { h = mix(h, s.charAt(i)); }
+		return mix(h, s.length());
+	}
+
+	private static long mix(long h, long v) {
+		h ^= v;
+		h *= 0x100000001B3L;
+		return h ^ (h >>> 29);
+	}
+
+	public static String config(CostSensitiveClassifier cla, Instances data, int numFolds)
+			throws Exception {
+		/** Identifies everything an evaluation depends on besides the seed and costs:
+		 * base classifier and its options, cost mode, cost matrix diagonal, folds and data.
+		 */
+		Classifier base = cla.getClassifier();
+		StringBuilder key = new StringBuilder(base.getClass().getName());
+		if (base instanceof OptionHandler) {
+			key.append(' ').append(Utils.joinOptions(((OptionHandler) base).getOptions()));
+		}
+		key.append(cla.getMinimizeExpectedCost() ? " -M" : "");
+		key.append(" diag=").append(cla.getCostMatrix().getElement(0, 0))
+				.append(',').append(cla.getCostMatrix().getElement(1, 1));
+		key.append(" folds=").append(numFolds);
+		return Long.toHexString(mix(fingerprint(data), key.toString()));
+	}
+
+	public static boolean scaleFree(CostMatrix cost) throws Exception {
+		/* True if only FP/FN matters: scaling both leaves a zero diagonal unchanged. */
+		return cost.getElement(0, 0) == 0 && cost.getElement(1, 1) == 0;
+	}
+
+	public static String costs(CostMatrix cost, double FP, double FN) throws Exception {
+		/* Key of the (FP, FN) costs set in `cost`. If scaleFree(cost), the pair is divided by
+		 * the power of two of FN, so only pairs differing by a power-of-two factor share a key:
+		 * those scale every product and sum of the reweighting (and of the expected costs) by
+		 * the same power of two, which is exact, so both give bit-identical weights and
+		 * predictions. Other equal ratios, e.g. (9, 3) and (3, 1), are rounded differently
+		 * and keep their own keys. Otherwise, the pair itself.
+		 */
+		if (!scaleFree(cost) || FN == 0) { return FP + "," + FN; }
+		int exponent = Math.getExponent(FN);
+		return Math.scalb(FP, -exponent) + "," + Math.scalb(FN, -exponent);
+	}
+
+	private static String key(String config, long seed, String costs) {
+		return config + "\t" + seed + "\t" + costs;
+	}
+
+	public Double get(String config, long seed, String costs) {
+		/* Cached AUC of the costs keyed `costs` (costs()), or null if never evaluated. */
+		return values.get(key(config, seed, costs));
+	}
+
+	public void put(String config, long seed, String costs, double AUC) throws IOException {
+		String key = key(config, seed, costs);
+		if (values.putIfAbsent(key, AUC) != null) { return; }
+		synchronized (file) {
+			file.write(key + "\t" + AUC + "\n");
+			file.flush();
+		}
+	}
+
+	public void close() throws IOException {
+		synchronized (file) { file.close(); }
+	}
+}
@@ -1,14 +1,17 @@
 package breastCancerSurvivability;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
-import java.io.FileWriter;
-import java.io.BufferedWriter;
+import java.util.Set;
 
 import weka.core.Instances;
 import weka.classifiers.CostMatrix;
 import weka.classifiers.meta.CostSensitiveClassifier;
 import weka.classifiers.evaluation.Evaluation;
-import weka.classifiers.evaluation.ThresholdCurve;
 import weka.classifiers.bayes.NaiveBayes;
 import weka.classifiers.trees.ADTree;
 import weka.classifiers.trees.adtree.*;
@@ -18,6 +21,11 @@ import breastCancerSurvivability.Dataset;
 
 public class Hyperparams {
 	
+	// Cost-matrix evaluations shared by every sweep and restart
+	private static final String CACHE_FILE = "costEvaluations.cache";
+	// Memory bound of the window slices findOptimWindow reuses across seeds
+	private static final long WINDOW_CACHE_BYTES = 256L << 20;
+	
 	public static void setCostMatrix(CostMatrix cost, double FP, double FN) {
 		cost.setElement(0, 1, FN);
 		cost.setElement(1, 0, FP);
@@ -40,39 +48,48 @@ public class Hyperparams {
 		 * 	(CostSensitiveClassifier) cla: Meta-classifier to analyze.
 		 * 	(Instances) data: Dataset over which finding optimal values.
 		 * 	(int) n_exps: Number of experiments (# random seeds to try).
-		 * 	(String) filename: File exporting results to.
+		 * 	(String) filename: File exporting results to; an interrupted run resumes
+		 * 	from its journal (Checkpoint) at the first seed not completed. Cells of that
+		 * 	seed already cross-validated are read back from the evaluation cache
+		 * 	(CACHE_FILE), written cell by cell, so this sweep always uses it.
 		 */
-		Dataset.rmFileExists(filename);
-		BufferedWriter file = new BufferedWriter(new FileWriter(filename, true));
 		// Initialize variables
-		double AUC, bestAUC = 0.0, bestFP = 0.0, bestFN = 0.0;
-		Runtime garbage;
-		double cost[] = {0.25, 0.5, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20};
-		file.write("Seed\tFP\tFN\tAUC\n");
+		double bestAUC = 0.0, bestFP = 0.0, bestFN = 0.0;
+		double cost[] = CostSearch.COSTS;
 		double[] seeds = linspace(1, 500, n_exps);
-		for (int idx = 0; idx < seeds.length; idx++) {
-			long seed = (long) seeds[idx];
-			// Evaluate every possible combination FP-FN
-			for (int FP = 0; FP < cost.length; FP++) {
-				for (int FN = 0; FN < cost.length; FN++) {
-					setCostMatrix(CM, cost[FP], cost[FN]);
-					Evaluation eval = new Evaluation(data);
-					eval.crossValidateModel(cla, data, 5, new Random(seed));
-					ThresholdCurve tc = new ThresholdCurve();
-					Instances result = tc.getCurve(eval.predictions());
-					AUC = ThresholdCurve.getROCArea(result);
-					if (AUC > bestAUC) {
-						bestAUC = AUC;
-						bestFP = cost[FP];
-						bestFN = cost[FN];
+		Checkpoint file = new Checkpoint(filename, "Seed\tFP\tFN\tAUC",
+				"findOptimCostMatrix " + EvaluationCache.config(cla, data, 5) + " n_exps=" + n_exps);
+		// Every cell is cross-validated in parallel on its own copy of `cla`
+		CostSearch search = new CostSearch(cla, data);
+		EvaluationCache cache = new EvaluationCache(CACHE_FILE);
+		search.setCache(cache);
+		try {
+			for (int idx = 0; idx < seeds.length; idx++) {
+				long seed = (long) seeds[idx];
+				String cell = "seed=" + seed;
+				if (file.done(cell)) {
+					// The best costs so far carry over to the next seeds
+					String[] done = file.fields(cell);
+					bestFP = Double.parseDouble(done[1]);
+					bestFN = Double.parseDouble(done[2]);
+					bestAUC = Double.parseDouble(done[3]);
+					continue;
+				}
+				double[][] AUC = search.grid(new long[] {seed})[0];
+				for (int FP = 0; FP < cost.length; FP++) {
+					for (int FN = 0; FN < cost.length; FN++) {
+						if (AUC[FP][FN] > bestAUC) {
+							bestAUC = AUC[FP][FN];
+							bestFP = cost[FP];
+							bestFN = cost[FN];
+						}
 					}
-					eval = null; tc = null; result = null;
-					garbage = Runtime.getRuntime();
-					garbage.gc();
 				}
+				System.out.println("SEED = " + seed + "\tFP = " + bestFP + "\tFN = " + bestFN + "\tAUC = " + bestAUC);
+				file.record(cell, seed + "\t" + bestFP + "\t" + bestFN + "\t" + bestAUC);
 			}
-			System.out.println("SEED = " + seed + "\tFP = " + bestFP + "\tFN = " + bestFN + "\tAUC = " + bestAUC);
-			file.write(seed + "\t" + bestFP + "\t" + bestFN + "\t" + bestAUC + "\n");
+		} finally {
+			cache.close();
 		}
 		file.close();
 	}
@@ -85,28 +102,27 @@ public class Hyperparams {
 		 * 	(Instances) data: Dataset over which finding optimal values.
 		 */
 		// Initialize variables
-		double AUC, bestAUC = 0.0, bestFP = 0.0, bestFN = 0.0;
-		Runtime garbage;
-		double cost[] = {0.25, 0.5, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20};
+		double bestAUC = 0.0, bestFP = 0.0, bestFN = 0.0;
+		double cost[] = CostSearch.COSTS;
+		CostSearch search = new CostSearch(cla, data);
+		EvaluationCache cache = new EvaluationCache(CACHE_FILE);
+		search.setCache(cache);
+		double[][] AUC;
+		try {
+			AUC = search.grid(new long[] {1})[0];
+		} finally {
+			cache.close();
+		}
 
 		// Evaluate every possible combination FP-FN
 		for (int FP = 0; FP < cost.length; FP++) {
 			for (int FN = 0; FN < cost.length; FN++) {
-				setCostMatrix(CM, cost[FP], cost[FN]);
-				Evaluation eval = new Evaluation(data);
-				eval.crossValidateModel(cla, data, 5, new Random(1));
-				ThresholdCurve tc = new ThresholdCurve();
-				Instances result = tc.getCurve(eval.predictions());
-				AUC = ThresholdCurve.getROCArea(result);
-				System.out.println(FP + " " + FN + " " + AUC);
-				if (AUC > bestAUC) {
-					bestAUC = AUC;
+				System.out.println(FP + " " + FN + " " + AUC[FP][FN]);
+				if (AUC[FP][FN] > bestAUC) {
+					bestAUC = AUC[FP][FN];
 					bestFP = cost[FP];
 					bestFN = cost[FN];
 				}
-				eval = null; tc = null; result = null;
-				garbage = Runtime.getRuntime();
-				garbage.gc();
 			}
 			System.out.println("FP = " + bestFP + "\tFN = " + bestFN + "\tAUC = " + bestAUC);
 		}
@@ -114,6 +130,13 @@ public class Hyperparams {
 	
 	private static void findOptimWindow(CostMatrix cost, CostSensitiveClassifier cla, Instances data,
 			int firstYear, int lastYear, double FP, double FN, String filename, int n_exps) throws Exception {
+		/* findOptimWindow with the folds crossValidateModel draws for every window. */
+		findOptimWindow(cost, cla, data, firstYear, lastYear, FP, FN, filename, n_exps, false);
+	}
+	
+	private static void findOptimWindow(CostMatrix cost, CostSensitiveClassifier cla, Instances data,
+			int firstYear, int lastYear, double FP, double FN, String filename, int n_exps,
+			boolean cubeFolds) throws Exception {
 		/** Finds the optimal time length for which each algorithm must be trained
 		 * at each stage separately and jointly. 
 		 * Args:
@@ -126,48 +149,290 @@ public class Hyperparams {
 		 * 	(double) FN: False Negative ratio  to introduce in `cost`
 		 * 	(String) filename: File exporting results to.
 		 * 	(int) n_exps: Number of experiments (# random seeds to try).
+		 * 	(boolean) cubeFolds: Cross-validate Naive Bayes on nominal data from one count
+		 * 	cube per seed. Faster, but its folds are stratified per stage, year and class
+		 * 	rather than drawn per window, so the AUCs differ from crossValidateModel's.
+		 * An interrupted run resumes from its journal (Checkpoint), skipping the (seed, stage)
+		 * cells completed.
 		 */
 		
-		Dataset.rmFileExists(filename);
-		BufferedWriter file = new BufferedWriter(new FileWriter(filename, true));
-		
 		setCostMatrix(cost, FP, FN);
 		int stage[] = {-1, 1, 2, 4}; // -1-all, 1-localized, 2-regional, 4-distant
 		double bestAUC[] = {0.0, 0.0, 0.0, 0.0};
 		double bestWindow[] = {0, 0, 0, 0};
 		double[] seeds = linspace(1, 500, n_exps);
-		file.write("Seed\tStage\tWindow\tAUC\n");
+		// Joint windows do not depend on the seed: build each one once
+		ColumnStore store = ColumnStore.fromInstances(data);
+		WindowCache windows = new WindowCache(new PartitionIndex(store), WINDOW_CACHE_BYTES);
+		boolean counted = cubeFolds && CountedNaiveBayes.emulates(cla) && CountedNaiveBayes.countable(store);
+		Checkpoint file = new Checkpoint(filename, "Seed\tStage\tWindow\tAUC",
+				"findOptimWindow " + EvaluationCache.config(cla, data, 5) + " years=" + firstYear + "-" + lastYear
+				+ " FP=" + FP + " FN=" + FN + " n_exps=" + n_exps + (counted ? " cubeFolds" : ""));
+		
+		// Each joint window is split into its stage slices in one pass, missing stages kept
+		PartitionedTrainer stages = new PartitionedTrainer(cla, RowFilter.STAGE);
+		stages.setIncludeJoint(true);
+		stages.setKeepMissing(true);
+		stages.setPartitions("1", "2", "4");
 		
 		for (int idx = 0; idx < seeds.length; idx++) {
 			long seed = (long) seeds[idx];
+			List<Integer> pending = new ArrayList<Integer>();
 			for (int s = 0; s < stage.length; s++) {
-				for (int w = 1; w <= 5; w++) {
-					double AUC = 0.0;
-					for (int y = firstYear; y <= (lastYear + 1 - w); y++) {
-						Instances newData = new Instances(data);
-						newData = Dataset.filterCumulativeYears(data, y, y + w - 1);
-						if (s != 0) {newData = Dataset.filterByStage(newData, stage[s]); }
-					
+				String cell = seed + ":" + stage[s];
+				if (file.done(cell)) {
+					// The best window so far carries over to the next seeds
+					String[] done = file.fields(cell);
+					bestWindow[s] = Double.parseDouble(done[2]);
+					bestAUC[s] = Double.parseDouble(done[3]);
+				} else {
+					pending.add(s);
+				}
+			}
+			if (pending.isEmpty()) { continue; }
+			CountCube cube = counted ? new CountCube(store, CountCube.stratifiedFolds(store, 5, seed), 5) : null;
+			// Fold models slide one year at a time along each window length
+			SlidingNaiveBayes[][] sliding = new SlidingNaiveBayes[stage.length][];
+			if (cube != null) {
+				for (int s : pending) { sliding[s] = cube.slidingFolds(stage[s], cla.getCostMatrix()); }
+			}
+			double[][] AUC = new double[stage.length][6];
+			for (int w = 1; w <= 5; w++) {
+				for (int y = firstYear; y <= (lastYear + 1 - w); y++) {
+					if (cube != null) {
+						for (int s : pending) { AUC[s][w] += cube.crossValidatedAUC(sliding[s], stage[s], y, y + w - 1); }
+						continue;
+					}
+					Map<String, Instances> slices = stages.partition(windows.get(-1, y, y + w - 1));
+					for (int s : pending) {
+						Instances newData = slices.get(stage[s] < 0 ? PartitionedTrainer.JOINT : String.valueOf(stage[s]));
+						
 						Evaluation eval = new Evaluation(data);
 						eval.crossValidateModel(cla, newData, 5, new Random(seed));
-						ThresholdCurve tc = new ThresholdCurve();
-						Instances result = tc.getCurve(eval.predictions());
-						AUC += ThresholdCurve.getROCArea(result);
-						eval = null; tc = null; result = null;
+						AUC[s][w] += AUCEngine.local().area(eval.predictions());
+						eval = null;
 					}
-					AUC /= (lastYear - firstYear + 2 - w);
-					if (AUC > bestAUC[s]) {
-						bestAUC[s] = AUC;
+				}
+			}
+			for (int s : pending) {
+				for (int w = 1; w <= 5; w++) {
+					AUC[s][w] /= (lastYear - firstYear + 2 - w);
+					if (AUC[s][w] > bestAUC[s]) {
+						bestAUC[s] = AUC[s][w];
 						bestWindow[s] = w;
 					}
 				}
-				file.write(seed + "\t" + Dataset.getStageName(s) + "\t" + bestWindow[s] + "\t" + bestAUC[s] + "\n");
+				file.record(seed + ":" + stage[s], seed + "\t" + Dataset.getStageName(s) + "\t" + bestWindow[s] + "\t" + bestAUC[s]);
 				System.out.println("Seed: "+ seed + " Stage: "+ Dataset.getStageName(s) +" Window: "+bestWindow[s]+" mean AUC: "+bestAUC[s]);
 			}
 		}
 		file.close();
 	}
 	
+	private static void findOptimCostMatrixPruned(CostSensitiveClassifier cla, Instances data,
+			int n_exps, String filename) throws Exception {
+		/** findOptimCostMatrix scored by mean fold AUC, abandoning the cross-validation of
+		 * a cell as soon as even perfect remaining folds could not beat the best so far.
+		 * Args:
+		 * 	(CostSensitiveClassifier) cla: Meta-classifier to analyze.
+		 * 	(Instances) data: Dataset over which finding optimal values.
+		 * 	(int) n_exps: Number of experiments (# random seeds to try).
+		 * 	(String) filename: File exporting every cell to, abandoned ones marked "pruned".
+		 */
+		double bestAUC = 0.0, bestFP = 0.0, bestFN = 0.0;
+		double cost[] = CostSearch.COSTS;
+		double[] seeds = linspace(1, 500, n_exps);
+		Checkpoint file = new Checkpoint(filename, "Seed\tFP\tFN\tAUC\tFolds\tStatus",
+				"findOptimCostMatrixPruned " + EvaluationCache.config(cla, data, 5) + " n_exps=" + n_exps);
+		CostSearch search = new CostSearch(cla, data);
+		for (int idx = 0; idx < seeds.length; idx++) {
+			long seed = (long) seeds[idx];
+			// A seed is graded in one go, pruned against the best of the seeds before it
+			CostSearch.CVResult[][] results = null;
+			for (int FP = 0; FP < cost.length && results == null; FP++) {
+				for (int FN = 0; FN < cost.length && results == null; FN++) {
+					if (!file.done(seed + ":" + cost[FP] + ":" + cost[FN])) {
+						results = search.pruningGrid(new long[] {seed}, bestAUC)[0];
+					}
+				}
+			}
+			for (int FP = 0; FP < cost.length; FP++) {
+				for (int FN = 0; FN < cost.length; FN++) {
+					String cell = seed + ":" + cost[FP] + ":" + cost[FN];
+					if (!file.done(cell)) {
+						CostSearch.CVResult r = results[FP][FN];
+						file.record(cell, seed + "\t" + cost[FP] + "\t" + cost[FN] + "\t" + r.AUC
+								+ "\t" + r.folds + "\t" + r.status());
+					}
+					String[] done = file.fields(cell);
+					double AUC = Double.parseDouble(done[3]);
+					if (!done[5].equals("pruned") && AUC > bestAUC) {
+						bestAUC = AUC;
+						bestFP = cost[FP];
+						bestFN = cost[FN];
+					}
+				}
+			}
+			System.out.println("SEED = " + seed + "\tFP = " + bestFP + "\tFN = " + bestFN + "\tAUC = " + bestAUC);
+		}
+		file.close();
+	}
+	
+	private static void findOptimCostMatrix(CostSensitiveClassifier cla, Instances data,
+			long seed, int rungs, int eta, String filename) throws Exception {
+		/** Successive-halving version of findOptimCostMatrix: every distinct cost pair is first
+		 * cross-validated on a 1/eta^(rungs-1) subsample, and only the best 1/eta of each
+		 * rung moves on to eta times more data, the last rung using all of it.
+		 * Args:
+		 * 	(CostSensitiveClassifier) cla: Meta-classifier to analyze.
+		 * 	(Instances) data: Dataset over which finding optimal values.
+		 * 	(long) seed: Random seed of the subsamples and CV folds.
+		 * 	(int) rungs: Number of budget levels.
+		 * 	(int) eta: Reduction factor between levels, e.g. 3.
+		 * 	(String) filename: File exporting every evaluation to. A restart re-runs the
+		 * 	halving with every evaluation already made read from the evaluation cache.
+		 */
+		Checkpoint file = new Checkpoint(filename, "Rung\tFraction\tFP\tFN\tAUC",
+				"findOptimCostMatrix " + EvaluationCache.config(cla, data, 5) + " seed=" + seed
+				+ " rungs=" + rungs + " eta=" + eta);
+		SuccessiveHalving<double[]> halving = new SuccessiveHalving<double[]>(rungs, eta);
+		EvaluationCache cache = new EvaluationCache(CACHE_FILE);
+		final Map<Double, CostSearch> searches = new HashMap<Double, CostSearch>();
+		for (int r = 0; r < rungs; r++) {
+			CostSearch search = new CostSearch(cla, Dataset.subsample(data, halving.budget(r), seed));
+			search.setCache(cache);
+			searches.put(halving.budget(r), search);
+		}
+		// One candidate per distinct EvaluationCache.costs key, in grid order
+		List<double[]> candidates = new ArrayList<double[]>();
+		Set<String> distinct = new HashSet<String>();
+		for (double FP : CostSearch.COSTS) {
+			for (double FN : CostSearch.COSTS) {
+				if (distinct.add(EvaluationCache.costs(cla.getCostMatrix(), FP, FN))) {
+					candidates.add(new double[] {FP, FN});
+				}
+			}
+		}
+		final long s = seed;
+		List<SuccessiveHalving.Result<double[]>> results;
+		try {
+			results = halving.run(candidates, new SuccessiveHalving.Evaluator<double[]>() {
+				public double evaluate(double[] cost, double budget) throws Exception {
+					return searches.get(budget).evaluate(cost[0], cost[1], s);
+				}
+			});
+		} finally {
+			cache.close();
+		}
+		
+		for (SuccessiveHalving.Result<double[]> r : results) {
+			file.record(r.rung + ":" + r.candidate[0] + ":" + r.candidate[1],
+					r.rung + "\t" + r.budget + "\t" + r.candidate[0] + "\t" + r.candidate[1] + "\t" + r.score);
+		}
+		SuccessiveHalving.Result<double[]> best = winner(results);
+		System.out.println("SEED = " + seed + "\tFP = " + best.candidate[0] + "\tFN = " + best.candidate[1] + "\tAUC = " + best.score);
+		file.close();
+	}
+	
+	private static void findOptimCostRatio(CostSensitiveClassifier cla, Instances data,
+			final long seed, String filename) throws Exception {
+		/** Bayesian optimisation of the costs instead of the fixed grid. Only FP/FN matters
+		 * (reweighting normalizes the weights, expected-cost decisions are scale free), so
+		 * a Gaussian process models the AUC over log(FP/FN), between the grid's extremes
+		 * 0.25/20 and 20/0.25, and proposes the point of maximum expected improvement.
+		 * Args:
+		 * 	(CostSensitiveClassifier) cla: Meta-classifier to analyze.
+		 * 	(Instances) data: Dataset over which finding optimal values.
+		 * 	(long) seed: Random seed of the CV folds.
+		 * 	(String) filename: File exporting every evaluation to, as it is made. A restart
+		 * 	proposes the same points again, their AUCs read from the evaluation cache.
+		 */
+		final Checkpoint file = new Checkpoint(filename, "Iter\tFP\tFN\tAUC",
+				"findOptimCostRatio " + EvaluationCache.config(cla, data, 5) + " seed=" + seed);
+		final CostSearch search = new CostSearch(cla, data);
+		EvaluationCache cache = new EvaluationCache(CACHE_FILE);
+		search.setCache(cache);
+		double lowest = CostSearch.COSTS[0], highest = CostSearch.COSTS[CostSearch.COSTS.length - 1];
+		final BayesOpt opt = new BayesOpt(Math.log(lowest / highest), Math.log(highest / lowest));
+		try {
+			opt.optimize(new BayesOpt.Objective() {
+				public double evaluate(double x) throws Exception {
+					double AUC = search.evaluate(Math.exp(x), 1, seed);
+					// x is listed before it is evaluated
+					int i = opt.evaluatedPoints().size() - 1;
+					file.record(String.valueOf(i), i + "\t" + Math.exp(x) + "\t1.0\t" + AUC);
+					return AUC;
+				}
+			});
+		} finally {
+			cache.close();
+		}
+		
+		int best = opt.best();
+		System.out.println("SEED = " + seed + "\tFP = " + Math.exp(opt.evaluatedPoints().get(best)) + "\tFN = 1.0"
+				+ "\tAUC = " + opt.evaluatedValues().get(best) + "\t(" + opt.evaluatedPoints().size() + " evaluations)");
+		file.close();
+	}
+	
+	private static <C> SuccessiveHalving.Result<C> winner(List<SuccessiveHalving.Result<C>> results) {
+		// Rungs are stored best first, so the winner opens the last one
+		int last = results.get(results.size() - 1).rung;
+		for (SuccessiveHalving.Result<C> r : results) {
+			if (r.rung == last) { return r; }
+		}
+		return null;
+	}
+	
+	private static void findOptimWindow(CostSensitiveClassifier cla, Instances data,
+			final int firstYear, final int lastYear, double FP, double FN, String filename,
+			int n_exps, int rungs, int eta) throws Exception {
+		/** Successive-halving version of findOptimWindow: the windows of each stage are
+		 * first compared on a 1/eta^(rungs-1) subsample of every year window, and only the
+		 * best 1/eta of each rung move on to eta times more data.
+		 * Args: as findOptimWindow, plus
+		 * 	(int) rungs: Number of budget levels.
+		 * 	(int) eta: Reduction factor between levels, e.g. 2.
+		 * An interrupted run resumes from its journal (Checkpoint), skipping the (seed, stage)
+		 * cells completed.
+		 */
+		Checkpoint file = new Checkpoint(filename, "Seed\tStage\tWindow\tAUC",
+				"findOptimWindow " + EvaluationCache.config(cla, data, 5) + " years=" + firstYear + "-" + lastYear
+				+ " FP=" + FP + " FN=" + FN + " n_exps=" + n_exps + " rungs=" + rungs + " eta=" + eta);
+		final CostSensitiveClassifier meta = CostSearch.withCosts(cla, FP, FN);
+		int stage[] = {-1, 1, 2, 4}; // -1-all, 1-localized, 2-regional, 4-distant
+		double[] seeds = linspace(1, 500, n_exps);
+		final WindowCache slices = new WindowCache(new PartitionIndex(ColumnStore.fromInstances(data)),
+				WINDOW_CACHE_BYTES);
+		List<Integer> windows = new ArrayList<Integer>();
+		for (int w = 1; w <= 5; w++) { windows.add(w); }
+		SuccessiveHalving<Integer> halving = new SuccessiveHalving<Integer>(rungs, eta);
+		
+		for (int idx = 0; idx < seeds.length; idx++) {
+			final long seed = (long) seeds[idx];
+			for (int s = 0; s < stage.length; s++) {
+				final int st = stage[s];
+				String cell = seed + ":" + st;
+				if (file.done(cell)) { continue; }
+				List<SuccessiveHalving.Result<Integer>> results = halving.run(windows,
+						new SuccessiveHalving.Evaluator<Integer>() {
+					public double evaluate(Integer w, double budget) throws Exception {
+						double AUC = 0.0;
+						for (int y = firstYear; y <= (lastYear + 1 - w); y++) {
+							Instances newData = Dataset.subsample(
+									slices.get(st, y, y + w - 1), budget, seed);
+							AUC += CostSearch.crossValidatedAUC(meta, newData, 5, seed);
+						}
+						return AUC / (lastYear - firstYear + 2 - w);
+					}
+				});
+				SuccessiveHalving.Result<Integer> best = winner(results);
+				file.record(cell, seed + "\t" + Dataset.getStageName(s) + "\t" + best.candidate + "\t" + best.score);
+				System.out.println("Seed: "+ seed + " Stage: "+ Dataset.getStageName(s) +" Window: "+best.candidate+" mean AUC: "+best.score);
+			}
+		}
+		file.close();
+	}
+	
 	public static void main(String[] args) throws Exception{
 		// Read dataset
 		Instances data = Dataset.getData();
@@ -180,13 +445,21 @@ public class Hyperparams {
 		CostMatrix CM = new CostMatrix(2);
 		meta.setCostMatrix(CM);
 		meta.setClassifier(bayes);
+		// Minimum-expected-cost decisions: the cost grid is swept from one CV per seed
+		// meta.setMinimizeExpectedCost(true);
 		// meta.buildClassifier(data);
 		System.out.println("--------- Naive Bayes ---------");
 		// findOptimCostMatrix(CM, meta, data, 25, "costMatrix_bayes.txt");
 		// findOptimCostMatrix(CM, meta, data);
+		// Abandon cells that cannot beat the best one: findOptimCostMatrixPruned(meta, data, 25, "costMatrix_bayes_pruned.txt");
+		// Gaussian-process search of FP/FN: findOptimCostRatio(meta, data, 1, "costRatio_bayes.txt");
+		// Successive halving: 4 rungs of 1/27, 1/9, 1/3 and all of the data
+		// findOptimCostMatrix(meta, data, 1, 4, 3, "costMatrix_bayes_halving.txt");
 		// Introduce optimCostMatrix manually if uncomment next line
 		// findOptimWindow(CM, meta, data, 2004, 2009, 8, 3);
 		findOptimWindow(CM, meta, data, 2004, 2009, 3, 1, "window_bayes.txt", 25);
+		// Folds of one count cube per seed instead of per window (different AUCs, much faster):
+		// findOptimWindow(CM, meta, data, 2004, 2009, 3, 1, "window_bayes_cube.txt", 25, true);
 		
 		/*
 		// B) Logistic Regression
@@ -0,0 +1,101 @@
+package breastCancerSurvivability;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import weka.core.Instances;
+import weka.core.OptionHandler;
+import weka.core.Utils;
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+
+public class ModelCache {
+	/* Trained classifiers keyed by their configuration (class and options, which for a
+	 * CostSensitiveClassifier include the cost matrix and base classifier) and the
+	 * content fingerprint of their training data, least recently used evicted first.
+	 * A request for a model already trained, or being trained by another thread, waits
+	 * for that model instead of training it again.
+	 */
+
+	private final int maxModels;
+	private int hits = 0;
+	private int misses = 0;
+	private final LinkedHashMap<String, FutureTask<Classifier>> models;
+
+	public ModelCache(final int maxModels) {
+		/** Args:
+		 *  (int) maxModels: Number of trained models kept.
+		 */
+		this.maxModels = maxModels;
+		models = new LinkedHashMap<String, FutureTask<Classifier>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<String, FutureTask<Classifier>> eldest) {
+				return size() > ModelCache.this.maxModels;
+			}
+		};
+	}
+
+	public static String key(Classifier cla, Instances data) {
+		StringBuilder key = new StringBuilder(cla.getClass().getName());
+		if (cla instanceof OptionHandler) {
+			key.append(' ').append(Utils.joinOptions(((OptionHandler) cla).getOptions()));
+		}
+		return key.append(" data=").append(Long.toHexString(EvaluationCache.fingerprint(data))).toString();
+	}
+
+	public Classifier train(final Classifier template, final Instances data) throws Exception {
+		/** `template` trained on `data`, reusing the model of an identical earlier request.
+		 * Args:
+		 *  (Classifier) template: Configuration to train; left untrained.
+		 *  (Instances) data: Training set; models are shared only for the same rows in the same order.
+		 *
+		 * Returns:
+		 * (Classifier) model: a copy of the cached model, free to use from any thread.
+		 */
+		String key = key(template, data);
+		FutureTask<Classifier> model;
+		boolean owner = false;
+		synchronized (this) {
+			model = models.get(key);
+			if (model == null) {
+				model = new FutureTask<Classifier>(new Callable<Classifier>() {
+					public Classifier call() throws Exception {
+						Classifier trained = AbstractClassifier.makeCopy(template);
+						trained.buildClassifier(data);
+						return trained;
+					}
+				});
+				models.put(key, model);
+				owner = true;
+				misses++;
+			} else {
+				hits++;
+			}
+		}
+		if (owner) { model.run(); }
+		try {
+			return AbstractClassifier.makeCopy(model.get());
+		} catch (ExecutionException e) {
+			// Failed builds are not cached
+			synchronized (this) {
+				if (models.get(key) == model) { models.remove(key); }
+			}
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) { throw (Exception) cause; }
+			if (cause instanceof Error) { throw (Error) cause; }
+			throw e;
+		}
+	}
+
+	public synchronized int hits() {
+		return hits;
+	}
+
+	public synchronized int misses() {
+		return misses;
+	}
+}
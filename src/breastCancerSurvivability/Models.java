@@ -1,18 +1,19 @@
 package breastCancerSurvivability;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
-import java.io.FileWriter;
-import java.io.BufferedWriter;
+import java.util.concurrent.Callable;
 
 import weka.core.Instances;
+import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
 import weka.classifiers.CostMatrix;
 import weka.classifiers.meta.CostSensitiveClassifier;
 import weka.classifiers.evaluation.Evaluation;
-import weka.classifiers.evaluation.EvaluationUtils;
-import weka.classifiers.evaluation.Prediction;
-import weka.classifiers.evaluation.ThresholdCurve;
 import weka.classifiers.bayes.NaiveBayes;
 import weka.classifiers.trees.ADTree;
 import weka.classifiers.trees.adtree.*;
@@ -25,6 +26,10 @@ import breastCancerSurvivability.Hyperparams;
 
 public class Models {
 	
+	// Fold models shared by the experiments of a run: e.g. predictionAllYears and
+	// predictionPartitioned over the same folds train the same joint models
+	private static final ModelCache MODELS = new ModelCache(64);
+	
 	private static double mean(double[] array) {
 		int size = array.length;
 		double m = 0.0;
@@ -39,99 +44,234 @@ public class Models {
 	}
 
 	private static double getAUC(Classifier cla, Instances data) throws Exception{
-		EvaluationUtils eval = new EvaluationUtils();
-		ArrayList<Prediction> pred = eval.getTestPredictions(cla, data);
-		ThresholdCurve TC = new ThresholdCurve();
-		Instances result = TC.getCurve(pred);
-		return ThresholdCurve.getROCArea(result);
+		return AUCEngine.local().area(cla, data);
 	}
 	
-	private static void predictionAllYears(CostSensitiveClassifier cla, 
+	private static void predictionAllYears(final CostSensitiveClassifier cla, 
 			Instances data, String filename, int nFolds) throws Exception {
 		/** Prediction of AUC for every stage for either the joint model and
-		 * stage-specific ones.
+		 * stage-specific ones. The folds are trained and evaluated in parallel, each
+		 * fold's joint and stage models by one PartitionedTrainer pass over its training data.
+		 * The stage lines are journaled (Checkpoint) once every fold is scored.
 		 */
-		Dataset.rmFileExists(filename);
-		BufferedWriter file = new BufferedWriter(new FileWriter(filename, true));
-		double[] AUC_joint = new double[nFolds];
-		double[] AUC_stage = new double[nFolds];
+		Checkpoint file = new Checkpoint(filename, "Stage\tJoint\tStage-specific",
+				"predictionAllYears " + ModelCache.key(cla, data) + " folds=" + nFolds);
+		final int[] stage = {-1, 1, 2, 4};
+		if (file.numDone() == stage.length) {
+			file.close();
+			return;
+		}
 		
 		// Split dataset in train and test folds
-		Instances[] trainFold = Dataset.getTrainCVFolds(data, nFolds);
-		Instances[] testFold = Dataset.getTestCVFolds(data, nFolds);
-		Instances trainData = new Instances(data, 0);
-		Instances testData = new Instances(data, 0);
+		final CVFolds folds = Dataset.getCVFolds(data, nFolds);
 		
-		file.write("Stage\tJoint\tStage-specific\n");
-		int[] stage = {-1, 1, 2, 4};
+		// Stage partitions keep missing stages, as filterByStage does
+		final PartitionedTrainer trainer = new PartitionedTrainer(cla, RowFilter.STAGE);
+		trainer.setIncludeJoint(true);
+		trainer.setKeepMissing(true);
+		trainer.setPartitions("1", "2", "4");
+		trainer.setCache(MODELS);
+		trainer.setThreads(1);
+		// Naive Bayes fold models are the whole cube minus the test fold's counts
+		CountCube cube = null;
+		final ColumnStore store = ColumnStore.fromInstances(data);
+		if (CountedNaiveBayes.emulates(cla) && CountedNaiveBayes.countable(store)) {
+			cube = new CountCube(store, CountCube.folds(folds), nFolds);
+		}
+		final CountCube counts = cube;
+		List<Callable<double[][]>> tasks = new ArrayList<Callable<double[][]>>();
+		for (int f = 0; f < nFolds; f++) {
+			final int k = f;
+			tasks.add(new Callable<double[][]>() {
+				public double[][] call() throws Exception {
+					// Printed as the fold starts; folds run concurrently, so lines may come out of order
+					System.out.println("Training on fold k = " + k);
+					double[][] AUC = new double[stage.length][2];
+					if (counts != null) {
+						CountedNaiveBayes counted = new CountedNaiveBayes();
+						counted.setCostMatrix(cla.getCostMatrix());
+						Instances[] testData = new Instances[stage.length];
+						counted.train(store.header(), counts.trainCounts(-1, Integer.MIN_VALUE, Integer.MAX_VALUE, k));
+						for (int s = 0; s < stage.length; s++) {
+							testData[s] = counts.instances(stage[s], Integer.MIN_VALUE, Integer.MAX_VALUE, k);
+							AUC[s][0] = getAUC(counted, testData[s]);
+						}
+						for (int s = 0; s < stage.length; s++) {
+							if (stage[s] >= 0) {
+								counted.train(store.header(), counts.trainCounts(stage[s], Integer.MIN_VALUE, Integer.MAX_VALUE, k));
+							}
+							AUC[s][1] = getAUC(counted, testData[s]);
+						}
+						return AUC;
+					}
+					Map<String, Classifier> models = trainer.train(folds.trainView(k));
+					Map<String, Instances> tests = trainer.partition(folds.testView(k));
+					for (int s = 0; s < stage.length; s++) {
+						String key = (stage[s] < 0) ? PartitionedTrainer.JOINT : String.valueOf(stage[s]);
+						Instances testData = tests.get(key);
+						AUC[s][0] = getAUC(models.get(PartitionedTrainer.JOINT), testData);
+						AUC[s][1] = getAUC(models.get(key), testData);
+					}
+					return AUC;
+				}
+			});
+		}
+		// Gathered in fold order: the means match the sequential loop's bit for bit
+		List<double[][]> results = Parallel.invokeAll(tasks, Parallel.threads());
 		for (int s = 0; s < stage.length; s++) {
+			double[] AUC_joint = new double[nFolds];
+			double[] AUC_stage = new double[nFolds];
 			for (int f = 0; f < nFolds; f++) {
-				trainData = trainFold[f];
-				testData = testFold[f];
-				if (s != 0) { testData = Dataset.filterByStage(testData, stage[s]); }
-				
-				System.out.println("Training on fold k = " + f);
-				cla.buildClassifier(trainData);
-				AUC_joint[f] = getAUC(cla, testData);
-				
-				if (s != 0) { trainData = Dataset.filterByStage(trainData, stage[s]); }
-				cla.buildClassifier(trainData);
-				AUC_stage[f] = getAUC(cla, testData);
+				AUC_joint[f] = results.get(f)[s][0];
+				AUC_stage[f] = results.get(f)[s][1];
 			}
 			double meanAUC_joint = mean(AUC_joint);
 			double meanAUC_stage = mean(AUC_stage);
-			file.write(Dataset.getStageName(s) + "\t" + meanAUC_joint + "\t" + meanAUC_stage + "\n");
+			file.record(String.valueOf(stage[s]), Dataset.getStageName(s) + "\t" + meanAUC_joint + "\t" + meanAUC_stage);
+		}
+		file.close();
+	}
+	
+	private static void predictionPartitioned(Classifier cla, Instances data,
+			String filename, int nFolds, String... attributes) throws Exception {
+		/** predictionAllYears for the partitions of any nominal attribute(s), e.g.
+		 * stage, registry or stage x registry. Each fold trains the joint model and
+		 * every partition-specific one in parallel. The partition lines are journaled
+		 * (Checkpoint) once every fold is scored.
+		 */
+		Checkpoint file = new Checkpoint(filename, "Partition\tJoint\tPartition-specific",
+				"predictionPartitioned " + ModelCache.key(cla, data) + " folds=" + nFolds
+				+ " by=" + Arrays.toString(attributes));
+		PartitionedTrainer trainer = new PartitionedTrainer(cla, attributes);
+		trainer.setIncludeJoint(true);
+		trainer.setCache(MODELS);
+		CVFolds folds = Dataset.getCVFolds(data, nFolds);
+		Map<String, double[]> AUC_joint = new LinkedHashMap<String, double[]>();
+		Map<String, double[]> AUC_part = new LinkedHashMap<String, double[]>();
+		
+		for (int f = 0; f < nFolds; f++) {
+			System.out.println("Training on fold k = " + f);
+			Map<String, Classifier> models = trainer.train(folds.trainView(f));
+			Map<String, Instances> tests = trainer.partition(folds.testView(f));
+			for (Map.Entry<String, Instances> test : tests.entrySet()) {
+				String key = test.getKey();
+				if (!AUC_joint.containsKey(key)) {
+					AUC_joint.put(key, new double[nFolds]);
+					AUC_part.put(key, new double[nFolds]);
+					Arrays.fill(AUC_joint.get(key), Double.NaN);
+					Arrays.fill(AUC_part.get(key), Double.NaN);
+				}
+				AUC_joint.get(key)[f] = getAUC(models.get(PartitionedTrainer.JOINT), test.getValue());
+				// A partition absent from the training folds has no model of its own
+				Classifier own = models.get(key);
+				if (own != null) { AUC_part.get(key)[f] = getAUC(own, test.getValue()); }
+			}
+		}
+		for (String key : AUC_joint.keySet()) {
+			file.record(key, key + "\t" + mean(AUC_joint.get(key)) + "\t" + mean(AUC_part.get(key)));
 		}
 		file.close();
 	}
 	
-	private static void predictionPerYear(CostSensitiveClassifier cla,
+	private static void predictionPerYear(final CostSensitiveClassifier cla,
 			Instances data, String filename, int nFolds, int[] window,
 			int firstYear, int lastYear) throws Exception {
 		/** Prediction of AUC for every stage for either the joint model and
-		 * stage-specific ones per year, thus getting the evolution.
+		 * stage-specific ones per year, thus getting the evolution. The folds of each
+		 * window are trained and evaluated in parallel, each on its own copy of `cla`.
+		 * An interrupted run resumes from its journal (Checkpoint), skipping the
+		 * (stage, year) windows completed.
 		 */
-		Dataset.rmFileExists(filename);
-		BufferedWriter file = new BufferedWriter(new FileWriter(filename, true));
+		Checkpoint file = new Checkpoint(filename, "Stage\tYear\tWindow\tJointAUC\tStageAUC",
+				"predictionPerYear " + ModelCache.key(cla, data) + " folds=" + nFolds
+				+ " windows=" + Arrays.toString(window) + " years=" + firstYear + "-" + lastYear);
 		int[] stage = {1, 2, 4};
 		// Data initialization
 		Instances filteredYears = new Instances(data, 0);
-		file.write("Stage\tYear\tWindow\tJointAUC\tStageAUC\n");
+		final PartitionIndex index = new PartitionIndex(ColumnStore.fromInstances(data));
+		final ColumnStore store = index.store();
+		// Naive Bayes stage models are a window's stage counts, summed from the year cells
+		// of one cube, minus the counts of the test fold's stage rows
+		final CountCube cube = (CountedNaiveBayes.emulates(cla) && CountedNaiveBayes.countable(store))
+				? new CountCube(store, new int[store.numRows()], 1) : null;
 		
 		for (int s = 0; s < stage.length; s++) {
-			int W = window[s];
+			final int W = window[s];
+			final int st = stage[s];
+			final RowFilter byStage = Dataset.windowFilter(Integer.MIN_VALUE, Integer.MAX_VALUE, st);
 			for (int y = firstYear; y <= (lastYear + 1 - W); y++) {
-				filteredYears = Dataset.filterCumulativeYears(data, y, y + W - 1);
-				Instances[] trainFolds = Dataset.getTrainCVFolds(filteredYears, nFolds);
-				Instances[] testFolds = Dataset.getTestCVFolds(filteredYears, nFolds);
+				if (file.done(st + ":" + y)) { continue; }
+				final int[] rows = index.rows(-1, y, y + W - 1);
+				filteredYears = index.store().toInstances(rows);
+				final CVFolds folds = Dataset.getCVFolds(filteredYears, nFolds);
 				double[] jointAUC = new double[nFolds];
 				double[] stageAUC = new double[nFolds];
+				final int[] stageRows = (cube != null) ? byStage.apply(store, rows) : null;
+				final CountTable stageCounts = (cube != null) ? cube.counts(st, y, y + W - 1, -1) : null;
 				
+				List<Callable<double[]>> tasks = new ArrayList<Callable<double[]>>();
+				for (int f = 0; f < nFolds; f++) {
+					final int k = f;
+					tasks.add(new Callable<double[]>() {
+						public double[] call() throws Exception {
+							double[] AUC = new double[2];
+							if (cube != null) {
+								CountedNaiveBayes counted = new CountedNaiveBayes();
+								counted.setCostMatrix(cla.getCostMatrix());
+								int[] train = folds.trainRows(k);
+								int[] test = folds.testRows(k);
+								int[] testFold = new int[test.length];
+								for (int i = 0; i < test.length; i++) { testFold[i] = rows[test[i]]; }
+								int[] testStage = byStage.apply(store, testFold);
+								// Same subsets as getNInstances over the fold views below
+								int nTrain = stageRows.length - testStage.length;
+								int[] trainJoint = new int[nTrain];
+								for (int i = 0; i < nTrain; i++) { trainJoint[i] = rows[train[i]]; }
+								int[] testJoint = Arrays.copyOf(testFold, testStage.length);
+								
+								counted.train(store.header(), CountTable.of(store, trainJoint));
+								AUC[0] = getAUC(counted, store.toInstances(testJoint));
+								
+								CountTable trainStage = stageCounts.copy();
+								trainStage.subtract(CountTable.of(store, testStage));
+								counted.train(store.header(), trainStage);
+								AUC[1] = getAUC(counted, store.toInstances(testStage));
+								return AUC;
+							}
+							Classifier model = AbstractClassifier.makeCopy(cla);
+							Instances trainTS1 = folds.trainView(k);
+							Instances testTS1 = folds.testView(k);
+							
+							Instances trainTS2 = Dataset.filterByStage(trainTS1, st);
+							Instances testTS2 = Dataset.filterByStage(testTS1, st);
+							
+							// Subset with same number of instances for fair comparison
+							trainTS1 = Dataset.getNInstances(trainTS1, trainTS2.numInstances());
+							testTS1 = Dataset.getNInstances(testTS1, testTS2.numInstances());
+							
+							// System.out.println("Joint instances: " + testTS1.numInstances() + " Stage instances: " + testTS2.numInstances());
+							
+							model.buildClassifier(trainTS1);
+							AUC[0] = getAUC(model, testTS1);
+							
+							model.buildClassifier(trainTS2);
+							AUC[1] = getAUC(model, testTS2);
+							
+							// System.out.println("Joint - " + AUC[0] + " stage - " + AUC[1]);
+							return AUC;
+						}
+					});
+				}
+				// Gathered in fold order: the means match the sequential loop's bit for bit
+				List<double[]> results = Parallel.invokeAll(tasks, Parallel.threads());
 				for (int f = 0; f < nFolds; f++) {
-					Instances trainTS1 = trainFolds[f];
-					Instances testTS1 = testFolds[f];
-					
-					Instances trainTS2 = Dataset.filterByStage(trainFolds[f], stage[s]);
-					Instances testTS2 = Dataset.filterByStage(testFolds[f], stage[s]);
-					
-					// Subset with same number of instances for fair comparison
-					trainTS1 = Dataset.getNInstances(trainTS1, trainTS2.numInstances());
-					testTS1 = Dataset.getNInstances(testTS1, testTS2.numInstances());
-					
-					// System.out.println("Joint instances: " + testTS1.numInstances() + " Stage instances: " + testTS2.numInstances());
-					
-					cla.buildClassifier(trainTS1);
-					jointAUC[f] = getAUC(cla, testTS1);
-					
-					cla.buildClassifier(trainTS2);
-					stageAUC[f] = getAUC(cla, testTS2);
-					
-					// System.out.println("Joint - " + jointAUC[f] + " stage - " + stageAUC[f]);
+					jointAUC[f] = results.get(f)[0];
+					stageAUC[f] = results.get(f)[1];
 				}
 				double meanJointAUC = mean(jointAUC);
 				double meanStageAUC = mean(stageAUC);
-				file.write(Dataset.getStageName(s) + "\t" + y + "\t" 
-				+ W + "\t" + meanJointAUC + "\t" + meanStageAUC + "\n");
+				file.record(st + ":" + y, Dataset.getStageName(s) + "\t" + y + "\t"
+				+ W + "\t" + meanJointAUC + "\t" + meanStageAUC);
 				System.out.println(Dataset.getStageName(s) + " - Year: " + y +
 						" - Joint: " + meanJointAUC + " - Stage: " + meanStageAUC);
 			}
@@ -142,28 +282,33 @@ public class Models {
 	private static void ageing(CostSensitiveClassifier cla, Instances data,
 			String filename, int[] window, int firstYear, int lastYear) throws Exception {
 		/** Train a model over a window of years and evaluate its performance
-		 * in previous as well as in following years.
+		 * in previous as well as in following years. Every model and every
+		 * (model, test year) AUC is computed in parallel (AgeingMatrix).
+		 * An interrupted run resumes from its journal (Checkpoint) at the first stage
+		 * not completed.
 		 */
-		Dataset.rmFileExists(filename);
-		BufferedWriter file = new BufferedWriter(new FileWriter(filename, true));
+		Checkpoint file = new Checkpoint(filename, null,
+				"ageing " + ModelCache.key(cla, data) + " windows=" + Arrays.toString(window)
+				+ " years=" + firstYear + "-" + lastYear);
 		int[] stage = {-1, 1, 2, 4};
+		AgeingMatrix ageing = new AgeingMatrix(new PartitionIndex(ColumnStore.fromInstances(data)),
+				firstYear, lastYear);
 		
 		for (int s = 0; s < stage.length; s++) {
 			int W = window[s];
-			for (int y = firstYear; y < (lastYear - W + 1); y += 5) {
-				Instances trainData = Dataset.filterCumulativeYears(data, y, y + W - 1);
-				if (s != 0) {trainData = Dataset.filterByStage(trainData, stage[s]);}
-				cla.buildClassifier(trainData);
-				System.out.print("Stage: " + Dataset.getStageName(s) +  " Year: " + y);
-				file.write(Dataset.getStageName(s) + "\t" + y + "\t");
+			int[] starts = ageing.startYears(W);
+			boolean done = true;
+			for (int y : starts) { done &= file.done(stage[s] + ":" + y); }
+			if (done) { continue; }
+			double[][] AUC = ageing.compute(cla, new int[] {stage[s]}, new int[] {W})[0];
+			for (int i = 0; i < starts.length; i++) {
+				int y = starts[i];
+				System.out.println("Stage: " + Dataset.getStageName(s) +  " Year: " + y);
+				StringBuilder line = new StringBuilder(Dataset.getStageName(s) + "\t" + y + "\t");
 				for (int testYear = y + W; testYear < (lastYear + 1); testYear++) {
-					Instances testData = Dataset.filterByYear(data, testYear);
-					if (s != 0) {testData = Dataset.filterByStage(testData, stage[s]);}
-					double AUC = getAUC(cla, testData);
-					file.write(AUC + "\t");
+					line.append(AUC[i][testYear - firstYear] + "\t");
 				}
-				System.out.print("\n");
-				file.write("\n");
+				file.record(stage[s] + ":" + y, line.toString());
 			}
 		}
 		file.close();
@@ -185,6 +330,7 @@ public class Models {
 		meta.setClassifier(bayes);
 		Hyperparams.setCostMatrix(CM, 9, 2);
 		// predictionAllYears(meta, data, filename, nFolds);
+		// predictionPartitioned(meta, data, "bayesPrediction_stage.txt", nFolds, RowFilter.STAGE);
 		int[] window = {3, 3, 4, 4};
 		// String filename2 = "bayesPrediction_yearly.txt";
 		// predictionPerYear(meta, data, filename2, nFolds, window, 2004, 2009);
@@ -0,0 +1,70 @@
+package breastCancerSurvivability;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class Parallel {
+
+	public static int threads() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	public static <T> List<T> invokeAll(List<? extends Callable<T>> tasks, int threads) throws Exception {
+		/** Runs `tasks` on a fixed pool and returns their results in task order.
+		 * Args:
+		 *  (List) tasks: Independent tasks.
+		 *  (int) threads: Pool size; 1 runs the tasks on the calling thread.
+		 *
+		 * Returns:
+		 * (List) results: results[i] is the value of tasks[i]; the first failure is rethrown.
+		 */
+		List<T> results = new ArrayList<T>(tasks.size());
+		if (threads <= 1 || tasks.size() <= 1) {
+			for (Callable<T> task : tasks) { results.add(task.call()); }
+			return results;
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, tasks.size()));
+		try {
+			List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+			for (Callable<T> task : tasks) { futures.add(pool.submit(task)); }
+			for (Future<T> future : futures) { results.add(get(future)); }
+			return results;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	public static <T> List<T> invokeStealing(List<? extends Callable<T>> tasks, int threads) throws Exception {
+		/** invokeAll on a work-stealing pool, for many tasks of very uneven cost
+		 * (e.g. cross-validations whose run time depends on the cost matrix).
+		 */
+		if (threads <= 1 || tasks.size() <= 1) { return invokeAll(tasks, 1); }
+		ForkJoinPool pool = new ForkJoinPool(Math.min(threads, tasks.size()));
+		try {
+			List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+			for (Callable<T> task : tasks) { futures.add(pool.submit(task)); }
+			List<T> results = new ArrayList<T>(tasks.size());
+			for (Future<T> future : futures) { results.add(get(future)); }
+			return results;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static <T> T get(Future<T> future) throws Exception {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) { throw (Exception) cause; }
+			if (cause instanceof Error) { throw (Error) cause; }
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package breastCancerSurvivability;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.classifiers.trees.adtree.ReferenceInstances;
+
+public class ParallelLoader {
+
+	// Ranges per thread, so a slow range does not leave the other cores idle
+	private static final int RANGES_PER_THREAD = 4;
+
+	public static Instances loadArff(String filename, RowFilter filter, int threads) throws Exception {
+		/** Parses the @data section of an ARFF in line-aligned byte ranges, one task per range.
+		 * Args:
+		 *  (String) filename: ARFF file.
+		 *  (RowFilter) filter: Rules pushed down into every range parser; null keeps every row.
+		 *  (int) threads: Number of parsing threads.
+		 *
+		 * Returns:
+		 * (Instances) data: surviving rows in file order, class index unset.
+		 */
+		StringBuilder headerText = new StringBuilder();
+		long dataStart = -1;
+		try (InputStream in = new FileInputStream(filename)) {
+			LineReader reader = new LineReader(in, 0);
+			String line;
+			while ((line = reader.readLine()) != null) {
+				headerText.append(line).append('\n');
+				if (line.trim().toLowerCase().startsWith("@data")) {
+					dataStart = reader.position();
+					break;
+				}
+			}
+		}
+		if (dataStart < 0) { throw new IOException("No @data section found"); }
+		Instances header = new Instances(new StringReader(headerText.toString()));
+		return load(filename, header, dataStart, filter, threads);
+	}
+
+	public static Instances loadCsv(String filename, Instances structure, RowFilter filter,
+			int threads) throws Exception {
+		/** Same as loadArff for a CSV export whose first line names the columns.
+		 * Args:
+		 *  (String) filename: CSV file, columns in the order of `structure`.
+		 *  (Instances) structure: Attribute definitions (e.g. the ARFF header of the extract).
+		 *  (RowFilter) filter: Rules pushed down into every range parser; null keeps every row.
+		 *  (int) threads: Number of parsing threads.
+		 */
+		long dataStart;
+		try (InputStream in = new FileInputStream(filename)) {
+			LineReader reader = new LineReader(in, 0);
+			String names = reader.readLine();
+			if (names == null) { throw new IOException("Empty CSV file " + filename); }
+			String[] columns = names.split(",");
+			if (columns.length != structure.numAttributes()) {
+				throw new IOException("CSV has " + columns.length + " columns, expected "
+						+ structure.numAttributes());
+			}
+			for (int a = 0; a < columns.length; a++) {
+				String name = columns[a].trim().replaceAll("^[\"']|[\"']$", "");
+				if (!name.equals(structure.attribute(a).name())) {
+					throw new IOException("CSV column " + (a + 1) + " is '" + name + "', expected '"
+							+ structure.attribute(a).name() + "'");
+				}
+			}
+			dataStart = reader.position();
+		}
+		return load(filename, new Instances(structure, 0), dataStart, filter, threads);
+	}
+
+	private static Instances load(final String filename, final Instances header, long dataStart,
+			final RowFilter filter, int threads) throws Exception {
+		long size;
+		try (RandomAccessFile raf = new RandomAccessFile(filename, "r")) { size = raf.length(); }
+		int numRanges = (int) Math.max(1, Math.min(threads * RANGES_PER_THREAD,
+				(size - dataStart) / (1 << 20) + 1));
+		long step = (size - dataStart + numRanges - 1) / numRanges;
+		List<Callable<List<Instance>>> tasks = new ArrayList<Callable<List<Instance>>>();
+		for (int r = 0; r < numRanges; r++) {
+			final long start = Math.min(size, dataStart + r * step);
+			final long end = Math.min(size, start + step);
+			final boolean first = (r == 0);
+			tasks.add(new Callable<List<Instance>>() {
+				public List<Instance> call() throws Exception {
+					return parseRange(filename, header, filter, start, end, first);
+				}
+			});
+		}
+		ReferenceInstances data = new ReferenceInstances(header, 1024);
+		for (List<Instance> range : Parallel.invokeAll(tasks, threads)) {
+			for (Instance inst : range) {
+				inst.setDataset(data);
+				data.addReference(inst);
+			}
+		}
+		data.compactify();
+		return data;
+	}
+
+	private static List<Instance> parseRange(String filename, Instances header, RowFilter filter,
+			long start, long end, boolean first) throws IOException {
+		/* Parses every line that starts inside [start, end). */
+		List<Instance> rows = new ArrayList<Instance>();
+		if (start >= end) { return rows; }
+		ArffStream parser = new ArffStream(header, filter);
+		try (RandomAccessFile raf = new RandomAccessFile(filename, "r")) {
+			long from = first ? start : start - 1;
+			raf.seek(from);
+			LineReader reader = new LineReader(Channels.newInputStream(raf.getChannel()), from);
+			// The line that crosses `start` belongs to the previous range
+			if (!first) { reader.readLine(); }
+			while (reader.position() < end) {
+				String line = reader.readLine();
+				if (line == null) { break; }
+				Instance inst = parser.parse(line);
+				if (inst != null) { rows.add(inst); }
+			}
+		}
+		return rows;
+	}
+
+	private static class LineReader {
+		/* UTF-8 line reader that knows the byte offset of the next line. Lines are found
+		 * by scanning its own chunk of the stream, not read a byte per call.
+		 */
+		private final InputStream in;
+		private final byte[] chunk = new byte[1 << 16];
+		private int next = 0;
+		private int limit = 0;
+		// A line spanning chunks is gathered here
+		private byte[] line = new byte[256];
+		private long position;
+
+		LineReader(InputStream in, long position) {
+			this.in = in;
+			this.position = position;
+		}
+
+		long position() {
+			return position;
+		}
+
+		String readLine() throws IOException {
+			int length = 0;
+			boolean any = false;
+			while (true) {
+				if (next == limit) {
+					limit = Math.max(0, in.read(chunk, 0, chunk.length));
+					next = 0;
+					if (limit == 0) { break; }
+				}
+				any = true;
+				int end = next;
+				while (end < limit && chunk[end] != '\n') { end++; }
+				position += end - next + (end < limit ? 1 : 0);
+				if (end < limit && length == 0) {
+					// The whole line is in the chunk
+					String s = decode(chunk, next, end - next);
+					next = end + 1;
+					return s;
+				}
+				if (length + end - next > line.length) {
+					line = Arrays.copyOf(line, Math.max(2 * line.length, length + end - next));
+				}
+				System.arraycopy(chunk, next, line, length, end - next);
+				length += end - next;
+				next = (end < limit) ? end + 1 : limit;
+				if (end < limit) { break; }
+			}
+			return any ? decode(line, 0, length) : null;
+		}
+
+		private static String decode(byte[] bytes, int offset, int length) {
+			if (length > 0 && bytes[offset + length - 1] == '\r') { length--; }
+			return new String(bytes, offset, length, StandardCharsets.UTF_8);
+		}
+	}
+}
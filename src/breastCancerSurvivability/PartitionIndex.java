@@ -0,0 +1,141 @@
+package breastCancerSurvivability;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class PartitionIndex {
+
+	// Key of the rows whose value is missing
+	private static final int MISSING = -1;
+
+	private final ColumnStore store;
+	// Keyed by label code of the stage / year attribute, MISSING for missing values
+	private final Map<Integer, RowBitmap> byStage = new TreeMap<Integer, RowBitmap>();
+	private final Map<Integer, RowBitmap> byYear = new TreeMap<Integer, RowBitmap>();
+
+	public PartitionIndex(ColumnStore store) {
+		/** Builds one bitmap per stage and per year of diagnosis label, plus one of the
+		 * rows missing each, in a single pass.
+		 * Args:
+		 *  (ColumnStore) store: Table the row indices refer to.
+		 */
+		this(store, null, 0);
+	}
+
+	private PartitionIndex(ColumnStore store, PartitionIndex previous, int fromRow) {
+		this.store = store;
+		if (previous != null) {
+			byStage.putAll(previous.byStage);
+			byYear.putAll(previous.byYear);
+		}
+		int stageCol = store.attributeIndex(RowFilter.STAGE);
+		int yearCol = store.attributeIndex(RowFilter.YEAR);
+		// Slot 0 holds the rows with a missing value, slot code + 1 the others
+		int[][] stageRows = new int[store.attribute(stageCol).numValues() + 1][];
+		int[][] yearRows = new int[store.attribute(yearCol).numValues() + 1][];
+		int[] stageCount = new int[stageRows.length];
+		int[] yearCount = new int[yearRows.length];
+		for (int r = fromRow; r < store.numRows(); r++) {
+			add(stageRows, stageCount, store.code(stageCol, r) + 1, r);
+			add(yearRows, yearCount, store.code(yearCol, r) + 1, r);
+		}
+		index(byStage, stageRows, stageCount);
+		index(byYear, yearRows, yearCount);
+		// Partitions without new rows still have to cover the grown store
+		resize(byStage);
+		resize(byYear);
+	}
+
+	private void resize(Map<Integer, RowBitmap> map) {
+		for (Map.Entry<Integer, RowBitmap> e : map.entrySet()) {
+			if (e.getValue().numRows() != store.numRows()) {
+				e.setValue(e.getValue().append(new int[0], 0, store.numRows()));
+			}
+		}
+	}
+
+	public PartitionIndex append(ColumnStore grown, int fromRow) {
+		/** Index over `grown`, a store with rows appended (ColumnStore.append) to this one's.
+		 * Only rows from `fromRow` on are scanned; appending keeps existing label codes.
+		 */
+		return new PartitionIndex(grown, this, fromRow);
+	}
+
+	private static void add(int[][] lists, int[] counts, int slot, int row) {
+		if (lists[slot] == null) { lists[slot] = new int[16]; }
+		else if (counts[slot] == lists[slot].length) {
+			lists[slot] = Arrays.copyOf(lists[slot], 2 * counts[slot]);
+		}
+		lists[slot][counts[slot]++] = row;
+	}
+
+	private void index(Map<Integer, RowBitmap> map, int[][] lists, int[] counts) {
+		for (int slot = 0; slot < lists.length; slot++) {
+			if (lists[slot] == null) { continue; }
+			Integer key = slot - 1;
+			RowBitmap previous = map.get(key);
+			map.put(key, previous == null ? RowBitmap.fromSortedRows(lists[slot], counts[slot], store.numRows())
+					: previous.append(lists[slot], counts[slot], store.numRows()));
+			lists[slot] = null;
+		}
+	}
+
+	public ColumnStore store() {
+		return store;
+	}
+
+	public RowBitmap select(RowFilter filter) {
+		/** Rows `filter` accepts, as filter.apply(store, store.allRows()), from the bitmaps:
+		 * the union of the accepted years (missing ones included if the filter keeps them)
+		 * intersected with the union of the accepted stages.
+		 */
+		RowBitmap years = union(byYear, filter.yearMask(store.attribute(store.attributeIndex(RowFilter.YEAR))),
+				filter.keepsMissingYear());
+		RowBitmap stages = union(byStage, filter.stageMask(store.attribute(store.attributeIndex(RowFilter.STAGE))),
+				filter.keepsMissingStage());
+		RowBitmap rows = (years == null) ? stages : (stages == null) ? years : years.and(stages);
+		if (rows == null) { rows = RowBitmap.fromSortedRows(store.allRows(), store.numRows(), store.numRows()); }
+		assert Arrays.equals(rows.toArray(), filter.apply(store, store.allRows()))
+				: "PartitionIndex.select differs from RowFilter.apply";
+		return rows;
+	}
+
+	private RowBitmap union(Map<Integer, RowBitmap> map, boolean[] keep, boolean keepMissing) {
+		// null if every row is accepted
+		List<RowBitmap> kept = new ArrayList<RowBitmap>();
+		for (Map.Entry<Integer, RowBitmap> e : map.entrySet()) {
+			int code = e.getKey();
+			if (code == MISSING ? keepMissing : keep[code]) { kept.add(e.getValue()); }
+		}
+		if (kept.size() == map.size()) { return null; }
+		return RowBitmap.or(kept.toArray(new RowBitmap[0]), store.numRows());
+	}
+
+	public RowBitmap window(int stage, int firstYear, int lastYear) {
+		/** Rows of Dataset.windowFilter(firstYear, lastYear, stage): diagnosed in
+		 * [firstYear, lastYear] at `stage`, plus, as filterCumulativeYears and filterByStage,
+		 * rows with a missing year or stage and years outside the range the filter removes.
+		 * Args:
+		 *  (int) stage: SEER-historic-stage-A value, or -1 for every stage (joint model).
+		 *  (int) firstYear: First year of the window.
+		 *  (int) lastYear: Last year of the window.
+		 */
+		return select(Dataset.windowFilter(firstYear, lastYear, stages(stage)));
+	}
+
+	public RowBitmap year(int stage, int year) {
+		/* Rows of Dataset.yearFilter(year, stage): as filterByYear, missing years included. */
+		return select(Dataset.yearFilter(year, stages(stage)));
+	}
+
+	private static int[] stages(int stage) {
+		return stage < 0 ? new int[0] : new int[] {stage};
+	}
+
+	public int[] rows(int stage, int firstYear, int lastYear) {
+		return window(stage, firstYear, lastYear).toArray();
+	}
+}
@@ -0,0 +1,215 @@
+package breastCancerSurvivability;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+import weka.classifiers.trees.adtree.ReferenceInstances;
+
+public class PartitionedTrainer {
+
+	public static final String JOINT = "Joint";
+
+	private final Classifier template;
+	private final String[] attributes;
+	private boolean includeJoint = false;
+	private boolean keepMissing = false;
+	private String[] keys = null;
+	private ModelCache cache = null;
+	private int threads = Parallel.threads();
+
+	public PartitionedTrainer(Classifier template, String... attributes) {
+		/** Trains one copy of `template` per combination of values of `attributes`.
+		 * Args:
+		 *  (Classifier) template: Configured classifier; it is copied, never trained itself.
+		 *  (String...) attributes: Nominal attributes to partition on, e.g. SEER-historic-stage-A,
+		 *  	or SEER-historic-stage-A and a registry attribute for stage x registry models.
+		 */
+		if (attributes.length == 0) { throw new IllegalArgumentException("No partition attribute"); }
+		this.template = template;
+		this.attributes = attributes.clone();
+	}
+
+	public void setIncludeJoint(boolean includeJoint) {
+		/* Also train a model on all the data, stored under JOINT. */
+		this.includeJoint = includeJoint;
+	}
+
+	public void setKeepMissing(boolean keepMissing) {
+		/** Put rows with a missing partition value in every partition their other values
+		 * match, as Dataset.filterByStage (RowFilter) keeps missing stages, instead of in none.
+		 */
+		this.keepMissing = keepMissing;
+	}
+
+	public void setPartitions(String... keys) {
+		/** Build only these partitions (keys as key() gives them), in this order, even if
+		 * empty; a label the attribute lacks matches no row. By default every non-empty one.
+		 */
+		this.keys = keys.clone();
+	}
+
+	public void setCache(ModelCache cache) {
+		/* Train through `cache`, so a partition with the same rows and classifier
+		 * configuration as an earlier request (e.g. another experiment's fold) is not retrained.
+		 */
+		this.cache = cache;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	private int[] columns(Instances data) {
+		int[] cols = new int[attributes.length];
+		for (int i = 0; i < attributes.length; i++) {
+			if (data.attribute(attributes[i]) == null || !data.attribute(attributes[i]).isNominal()) {
+				throw new IllegalArgumentException(attributes[i] + " is not a nominal attribute");
+			}
+			cols[i] = data.attribute(attributes[i]).index();
+		}
+		return cols;
+	}
+
+	public String key(Instance inst) {
+		/* Partition of `inst` (its labels joined by `|`), or null if one of them is missing. */
+		int[] cols = columns(inst.dataset());
+		StringBuilder key = new StringBuilder();
+		for (int i = 0; i < cols.length; i++) {
+			if (inst.isMissing(cols[i])) { return null; }
+			if (i > 0) { key.append('|'); }
+			key.append(inst.stringValue(cols[i]));
+		}
+		return key.toString();
+	}
+
+	public Map<String, Instances> partition(Instances data) {
+		/** Splits `data` in one pass; partitions reference, not copy, the instances.
+		 * Rows with a missing partition value belong to no partition (only to JOINT),
+		 * unless setKeepMissing.
+		 *
+		 * Returns:
+		 * (Map) partitions: partitions ordered by label index (or setPartitions order),
+		 *  JOINT first if enabled.
+		 */
+		int[] cols = columns(data);
+		int[][] codes = new int[data.numInstances()][cols.length];
+		for (int i = 0; i < data.numInstances(); i++) {
+			Instance inst = data.instance(i);
+			for (int c = 0; c < cols.length; c++) {
+				codes[i][c] = inst.isMissing(cols[c]) ? -1 : (int) inst.value(cols[c]);
+			}
+		}
+		// Partition labels by combined code, in output order
+		Map<Long, int[]> labels = new LinkedHashMap<Long, int[]>();
+		Map<Long, String> names = new LinkedHashMap<Long, String>();
+		if (keys != null) {
+			long absent = -1;
+			for (String key : keys) {
+				int[] label = labels(data, cols, key);
+				long code = (label == null) ? absent-- : code(data, cols, label);
+				labels.put(code, label);
+				names.put(code, key);
+			}
+		} else {
+			TreeMap<Long, int[]> seen = new TreeMap<Long, int[]>();
+			for (int[] row : codes) {
+				long code = code(data, cols, row);
+				if (code >= 0 && !seen.containsKey(code)) { seen.put(code, row); }
+			}
+			labels.putAll(seen);
+			for (Map.Entry<Long, int[]> e : seen.entrySet()) { names.put(e.getKey(), key(data, cols, e.getValue())); }
+		}
+		Map<Long, ReferenceInstances> parts = new LinkedHashMap<Long, ReferenceInstances>();
+		for (Long code : labels.keySet()) { parts.put(code, new ReferenceInstances(data, 16)); }
+		for (int i = 0; i < codes.length; i++) {
+			long code = code(data, cols, codes[i]);
+			if (code >= 0) {
+				ReferenceInstances part = parts.get(code);
+				if (part != null) { part.addReference(data.instance(i)); }
+				continue;
+			}
+			if (!keepMissing) { continue; }
+			for (Map.Entry<Long, int[]> e : labels.entrySet()) {
+				if (matches(codes[i], e.getValue())) { parts.get(e.getKey()).addReference(data.instance(i)); }
+			}
+		}
+		Map<String, Instances> partitions = new LinkedHashMap<String, Instances>();
+		if (includeJoint) { partitions.put(JOINT, data); }
+		for (Map.Entry<Long, ReferenceInstances> e : parts.entrySet()) {
+			if (keys != null || e.getValue().numInstances() > 0) { partitions.put(names.get(e.getKey()), e.getValue()); }
+		}
+		return partitions;
+	}
+
+	private static long code(Instances data, int[] cols, int[] row) {
+		// Mixed-radix code of a full label combination, -1 if a value is missing
+		long code = 0;
+		for (int c = 0; c < cols.length; c++) {
+			if (row[c] < 0) { return -1; }
+			code = code * data.attribute(cols[c]).numValues() + row[c];
+		}
+		return code;
+	}
+
+	private static int[] labels(Instances data, int[] cols, String key) {
+		// Label indices of a key, null if one of them is not declared
+		String[] values = key.split("\\|", -1);
+		if (values.length != cols.length) { return null; }
+		int[] label = new int[cols.length];
+		for (int c = 0; c < cols.length; c++) {
+			label[c] = data.attribute(cols[c]).indexOfValue(values[c]);
+			if (label[c] < 0) { return null; }
+		}
+		return label;
+	}
+
+	private static String key(Instances data, int[] cols, int[] label) {
+		StringBuilder key = new StringBuilder();
+		for (int c = 0; c < cols.length; c++) {
+			if (c > 0) { key.append('|'); }
+			key.append(data.attribute(cols[c]).value(label[c]));
+		}
+		return key.toString();
+	}
+
+	private static boolean matches(int[] row, int[] label) {
+		// A missing value matches any label; an undeclared partition (null) matches nothing
+		if (label == null) { return false; }
+		for (int c = 0; c < row.length; c++) {
+			if (row[c] >= 0 && row[c] != label[c]) { return false; }
+		}
+		return true;
+	}
+
+	public Map<String, Classifier> train(Instances data) throws Exception {
+		/** Partitions `data` and trains every partition's model in parallel.
+		 * Returns:
+		 * (Map) models: trained classifier per partition key, in partition() order.
+		 */
+		final Map<String, Instances> partitions = partition(data);
+		List<Callable<Classifier>> tasks = new ArrayList<Callable<Classifier>>();
+		for (final Instances part : partitions.values()) {
+			tasks.add(new Callable<Classifier>() {
+				public Classifier call() throws Exception {
+					if (cache != null) { return cache.train(template, part); }
+					Classifier model = AbstractClassifier.makeCopy(template);
+					model.buildClassifier(part);
+					return model;
+				}
+			});
+		}
+		List<Classifier> trained = Parallel.invokeAll(tasks, threads);
+		Map<String, Classifier> models = new LinkedHashMap<String, Classifier>();
+		int i = 0;
+		for (String key : partitions.keySet()) { models.put(key, trained.get(i++)); }
+		return models;
+	}
+}
@@ -0,0 +1,145 @@
+package breastCancerSurvivability;
+
+import java.util.Arrays;
+
+public class RowBitmap {
+
+	private final int numRows;
+	private final int cardinality;
+	// Sparse bitmaps keep their sorted rows, dense ones one bit per row of the store
+	private final int[] rows;
+	private final long[] words;
+
+	private RowBitmap(int numRows, int cardinality, int[] rows, long[] words) {
+		this.numRows = numRows;
+		this.cardinality = cardinality;
+		this.rows = rows;
+		this.words = words;
+	}
+
+	public static RowBitmap empty(int numRows) {
+		return new RowBitmap(numRows, 0, new int[0], null);
+	}
+
+	public static RowBitmap fromSortedRows(int[] sorted, int count, int numRows) {
+		/** Builds a bitmap from ascending row indices, picking the smaller layout.
+		 * Args:
+		 *  (int[]) sorted: Ascending, distinct row indices.
+		 *  (int) count: Number of valid entries in `sorted`.
+		 *  (int) numRows: Size of the row universe (store rows).
+		 */
+		if (isSparse(count, numRows)) {
+			return new RowBitmap(numRows, count, Arrays.copyOf(sorted, count), null);
+		}
+		long[] words = new long[wordCount(numRows)];
+		for (int i = 0; i < count; i++) { words[sorted[i] >>> 6] |= 1L << sorted[i]; }
+		return new RowBitmap(numRows, count, null, words);
+	}
+
+	private static RowBitmap fromWords(long[] words, int numRows) {
+		int count = 0;
+		for (long w : words) { count += Long.bitCount(w); }
+		if (!isSparse(count, numRows)) { return new RowBitmap(numRows, count, null, words); }
+		int[] rows = new int[count];
+		int n = 0;
+		for (int w = 0; w < words.length; w++) {
+			long word = words[w];
+			while (word != 0) {
+				rows[n++] = (w << 6) + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+			}
+		}
+		return new RowBitmap(numRows, count, rows, null);
+	}
+
+	private static boolean isSparse(int count, int numRows) {
+		// An int per row beats a bit per store row below 1/32 density
+		return (long) count * 32 < numRows;
+	}
+
+	private static int wordCount(int numRows) {
+		return (numRows + 63) >>> 6;
+	}
+
+	public RowBitmap append(int[] sorted, int count, int numRows) {
+		/** Bitmap over a grown store with rows added at its end.
+		 * Args:
+		 *  (int[]) sorted: Ascending new rows, all at or past the current numRows().
+		 *  (int) count: Number of valid entries in `sorted`.
+		 *  (int) numRows: New size of the row universe.
+		 */
+		if (rows != null) {
+			int[] all = Arrays.copyOf(rows, cardinality + count);
+			System.arraycopy(sorted, 0, all, cardinality, count);
+			return fromSortedRows(all, all.length, numRows);
+		}
+		long[] grown = Arrays.copyOf(words, wordCount(numRows));
+		for (int i = 0; i < count; i++) { grown[sorted[i] >>> 6] |= 1L << sorted[i]; }
+		return fromWords(grown, numRows);
+	}
+
+	public int numRows() {
+		return numRows;
+	}
+
+	public int cardinality() {
+		return cardinality;
+	}
+
+	public boolean contains(int row) {
+		if (words != null) { return (words[row >>> 6] & (1L << row)) != 0; }
+		return Arrays.binarySearch(rows, row) >= 0;
+	}
+
+	public RowBitmap and(RowBitmap other) {
+		if (rows != null || other.rows != null) {
+			// Probe the sparse side against the other one
+			RowBitmap sparse = (rows != null && (other.rows == null || cardinality <= other.cardinality))
+					? this : other;
+			RowBitmap probe = (sparse == this) ? other : this;
+			int[] out = new int[sparse.cardinality];
+			int n = 0;
+			for (int i = 0; i < sparse.cardinality; i++) {
+				if (probe.contains(sparse.rows[i])) { out[n++] = sparse.rows[i]; }
+			}
+			return new RowBitmap(numRows, n, Arrays.copyOf(out, n), null);
+		}
+		long[] out = new long[words.length];
+		for (int w = 0; w < out.length; w++) { out[w] = words[w] & other.words[w]; }
+		return fromWords(out, numRows);
+	}
+
+	public RowBitmap or(RowBitmap other) {
+		return or(new RowBitmap[] {this, other}, numRows);
+	}
+
+	public static RowBitmap or(RowBitmap[] bitmaps, int numRows) {
+		/* Union of several bitmaps over the same store, accumulated in one word array. */
+		long[] out = new long[wordCount(numRows)];
+		for (RowBitmap b : bitmaps) { b.orInto(out); }
+		return fromWords(out, numRows);
+	}
+
+	private void orInto(long[] out) {
+		if (words != null) {
+			for (int w = 0; w < words.length; w++) { out[w] |= words[w]; }
+		} else {
+			for (int i = 0; i < cardinality; i++) { out[rows[i] >>> 6] |= 1L << rows[i]; }
+		}
+	}
+
+	public int[] toArray() {
+		/* Selected rows in ascending order, i.e. the order of the original dataset. */
+		if (rows != null) { return rows.clone(); }
+		int[] out = new int[cardinality];
+		int n = 0;
+		for (int w = 0; w < words.length; w++) {
+			long word = words[w];
+			while (word != 0) {
+				out[n++] = (w << 6) + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+			}
+		}
+		return out;
+	}
+}
@@ -0,0 +1,149 @@
+package breastCancerSurvivability;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+
+public class RowFilter {
+
+	public static final String STAGE = "SEER-historic-stage-A";
+	public static final String YEAR = "Year-of-diagnosis";
+
+	private int[] stages = null;
+	private List<Integer> excludedStages = new ArrayList<Integer>();
+	private int firstYear = Integer.MIN_VALUE;
+	private int lastYear = Integer.MAX_VALUE;
+	private List<int[]> excludedYears = new ArrayList<int[]>();
+	// Like RemoveWithValues, missing values are kept unless asked otherwise
+	private boolean keepMissingStage = true;
+	private boolean keepMissingYear = true;
+
+	public void setStages(int... stages) {
+		/* Keeps only rows in one of `stages`; no call (or null) keeps every stage. */
+		this.stages = stages == null ? null : stages.clone();
+	}
+
+	public void excludeStages(int... stages) {
+		for (int s : stages) { excludedStages.add(s); }
+	}
+
+	public void setYearRange(int firstYear, int lastYear) {
+		/* Keeps only rows diagnosed in [firstYear, lastYear]. */
+		this.firstYear = firstYear;
+		this.lastYear = lastYear;
+	}
+
+	public void excludeYears(int firstYear, int lastYear) {
+		/* Removes rows diagnosed in [firstYear, lastYear]; empty ranges are ignored. */
+		if (firstYear <= lastYear) { excludedYears.add(new int[] {firstYear, lastYear}); }
+	}
+
+	public void setKeepMissingStage(boolean keep) {
+		keepMissingStage = keep;
+	}
+
+	public void setKeepMissingYear(boolean keep) {
+		keepMissingYear = keep;
+	}
+
+	public boolean keepsMissingStage() {
+		return keepMissingStage;
+	}
+
+	public boolean keepsMissingYear() {
+		return keepMissingYear;
+	}
+
+	public boolean[] stageMask(Attribute stageAtt) {
+		/** Per-label decision for the stage attribute.
+		 * Args:
+		 *  (Attribute) stageAtt: nominal SEER-historic-stage-A attribute.
+		 *
+		 * Returns:
+		 * (boolean[]) keep: keep[c] tells whether label index c passes the filter.
+		 */
+		boolean[] keep = new boolean[stageAtt.numValues()];
+		for (int c = 0; c < keep.length; c++) {
+			Integer stage = parse(stageAtt.value(c));
+			boolean in = stages == null;
+			if (stages != null && stage != null) {
+				for (int s : stages) { in |= (s == stage); }
+			}
+			keep[c] = in && (stage == null || !excludedStages.contains(stage));
+		}
+		return keep;
+	}
+
+	public boolean[] yearMask(Attribute yearAtt) {
+		boolean[] keep = new boolean[yearAtt.numValues()];
+		boolean ranged = firstYear != Integer.MIN_VALUE || lastYear != Integer.MAX_VALUE;
+		for (int c = 0; c < keep.length; c++) {
+			Integer year = parse(yearAtt.value(c));
+			if (year == null) { keep[c] = !ranged; continue; }
+			boolean in = year >= firstYear && year <= lastYear;
+			for (int[] range : excludedYears) {
+				if (year >= range[0] && year <= range[1]) { in = false; }
+			}
+			keep[c] = in;
+		}
+		return keep;
+	}
+
+	private static Integer parse(String label) {
+		try {
+			return Integer.valueOf(label.trim());
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	public boolean accept(boolean[] stageMask, boolean[] yearMask, int stageCode, int yearCode) {
+		/* Decision for one row given its label indices (-1 = missing). */
+		boolean stageOk = stageCode < 0 ? keepMissingStage : stageMask[stageCode];
+		return stageOk && (yearCode < 0 ? keepMissingYear : yearMask[yearCode]);
+	}
+
+	public Instances apply(Instances data) {
+		/** Filters `data` in a single scan.
+		 * Args:
+		 *  (Instances) data: Dataset with both SEER-historic-stage-A and Year-of-diagnosis.
+		 *
+		 * Returns:
+		 * (Instances) filtered: accepted rows, copied in their original order.
+		 */
+		int stageCol = data.attribute(STAGE).index();
+		int yearCol = data.attribute(YEAR).index();
+		boolean[] stageMask = stageMask(data.attribute(stageCol));
+		boolean[] yearMask = yearMask(data.attribute(yearCol));
+		Instances filtered = new Instances(data, data.numInstances());
+		for (int i = 0; i < data.numInstances(); i++) {
+			Instance inst = data.instance(i);
+			int stageCode = inst.isMissing(stageCol) ? -1 : (int) inst.value(stageCol);
+			int yearCode = inst.isMissing(yearCol) ? -1 : (int) inst.value(yearCol);
+			if (accept(stageMask, yearMask, stageCode, yearCode)) { filtered.add(inst); }
+		}
+		filtered.compactify();
+		return filtered;
+	}
+
+	public int[] apply(ColumnStore store, int[] rows) {
+		/* Row-index version of apply(Instances): no instance is copied. */
+		int stageCol = store.attributeIndex(STAGE);
+		int yearCol = store.attributeIndex(YEAR);
+		boolean[] stageMask = stageMask(store.attribute(stageCol));
+		boolean[] yearMask = yearMask(store.attribute(yearCol));
+		int[] selected = new int[rows.length];
+		int n = 0;
+		for (int i = 0; i < rows.length; i++) {
+			int r = rows[i];
+			if (accept(stageMask, yearMask, store.code(stageCol, r), store.code(yearCol, r))) {
+				selected[n++] = r;
+			}
+		}
+		return Arrays.copyOf(selected, n);
+	}
+}
@@ -0,0 +1,43 @@
+package breastCancerSurvivability;
+
+import weka.core.Instances;
+import weka.classifiers.BatchScorer;
+import weka.classifiers.Classifier;
+import weka.classifiers.meta.CostSensitiveClassifier;
+
+public class Scoring {
+	/* Probability of one class for a whole test set, as a primitive column: BatchScorer
+	 * classifiers (ADTree, LADTree) score the block natively, others instance by instance.
+	 */
+
+	public static Classifier unwrap(Classifier cla) {
+		/** The classifier whose distributions `cla` returns unchanged: the base classifier
+		 * of a reweighting CostSensitiveClassifier (its distributionForInstance passes the
+		 * base one's through), `cla` itself otherwise.
+		 */
+		while (cla instanceof CostSensitiveClassifier
+				&& !((CostSensitiveClassifier) cla).getMinimizeExpectedCost()) {
+			cla = ((CostSensitiveClassifier) cla).getClassifier();
+		}
+		return cla;
+	}
+
+	public static void score(Classifier cla, Instances data, int classIndex, double[] scores)
+			throws Exception {
+		/** Args:
+		 *  (Classifier) cla: Trained classifier.
+		 *  (Instances) data: Instances to score.
+		 *  (int) classIndex: Class whose probability is wanted.
+		 *  (double[]) scores: Receives distributionForInstance(data.instance(i))[classIndex],
+		 *   at least data.numInstances() long.
+		 */
+		Classifier scorer = unwrap(cla);
+		if (scorer instanceof BatchScorer) {
+			((BatchScorer) scorer).scoreInstances(data, classIndex, scores);
+			return;
+		}
+		for (int i = 0; i < data.numInstances(); i++) {
+			scores[i] = cla.distributionForInstance(data.instance(i))[classIndex];
+		}
+	}
+}
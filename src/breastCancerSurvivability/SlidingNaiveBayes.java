@@ -0,0 +1,88 @@
+package breastCancerSurvivability;
+
+import java.util.TreeMap;
+
+import weka.core.Instances;
+
+public class SlidingNaiveBayes extends CountedNaiveBayes {
+	/* NaiveBayes over a window of diagnosis years that slides without retraining: the
+	 * rows of every year are counted once (CountTable), moving the window subtracts the
+	 * years that leave and adds the ones that enter, and the estimators are rebuilt from
+	 * the window's counts in O(attributes x values), whatever the window size.
+	 * Windows follow Dataset.windowFilter: rows it never removes (missing year, years
+	 * outside [1973, cutoff]) are counted in every window.
+	 * Numeric attributes cannot be counted; with any of them slideTo() retrains.
+	 */
+
+	private static final long serialVersionUID = -2917416260841235361L;
+
+	private final ColumnStore store;
+	private final int[] rows;
+	private final TreeMap<Integer, CountTable> years = new TreeMap<Integer, CountTable>();
+	private final CountTable fixed;
+	private final boolean countable;
+	private CountTable window = null;
+	private int firstYear = 0;
+	private int lastYear = -1;
+
+	public SlidingNaiveBayes(ColumnStore store, int[] rows) {
+		/** Args:
+		 *  (ColumnStore) store: Dataset to train on.
+		 *  (int[]) rows: Rows windows are taken from, e.g. one stage's training fold
+		 *   (CountCube.slidingFolds).
+		 */
+		this.store = store;
+		this.rows = rows;
+		countable = countable(store);
+		fixed = countable ? new CountTable(store.header()) : null;
+		if (countable) {
+			int year = store.attributeIndex(RowFilter.YEAR);
+			// An empty window: the rows every window keeps
+			boolean[] always = Dataset.windowFilter(1, 0).yearMask(store.attribute(year));
+			for (int row : rows) {
+				int code = store.code(year, row);
+				if (code < 0 || always[code]) {
+					fixed.add(store, row);
+					continue;
+				}
+				int y = Integer.parseInt(store.attribute(year).value(code).trim());
+				CountTable table = years.get(y);
+				if (table == null) {
+					table = new CountTable(store.header());
+					years.put(y, table);
+				}
+				table.add(store, row);
+			}
+		}
+	}
+
+	public void slideTo(int first, int last) throws Exception {
+		/** Trains on the rows Dataset.windowFilter(first, last) keeps.
+		 * Windows overlapping the previous one are reached by adding and subtracting
+		 * the years in the difference; disjoint ones by adding their years.
+		 */
+		if (!countable) {
+			Instances data = store.toInstances(Dataset.windowFilter(first, last).apply(store, rows));
+			buildClassifier(getCostMatrix() == null ? data : getCostMatrix().applyCostMatrix(data, null));
+			return;
+		}
+		if (window == null || first > lastYear || last < firstYear) {
+			window = fixed.copy();
+			for (CountTable table : years.subMap(first, true, last, true).values()) { window.add(table); }
+		} else {
+			for (int y = firstYear; y < first; y++) { change(y, -1); }
+			for (int y = last + 1; y <= lastYear; y++) { change(y, -1); }
+			for (int y = first; y < firstYear; y++) { change(y, 1); }
+			for (int y = lastYear + 1; y <= last; y++) { change(y, 1); }
+		}
+		firstYear = first;
+		lastYear = last;
+		train(store.header(), window);
+	}
+
+	private void change(int year, int sign) {
+		CountTable table = years.get(year);
+		if (table == null) { return; }
+		if (sign > 0) { window.add(table); } else { window.subtract(table); }
+	}
+}
@@ -0,0 +1,273 @@
+package breastCancerSurvivability;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+import weka.core.Instances;
+
+public class Snapshot {
+
+	private static final int MAGIC = 0x42435353; // "BCSS"
+	private static final int SEGMENT = 0x5345474D; // "SEGM"
+	// 2: nominal columns stored with their 1, 2 or 4 byte code width
+	// 3: rows stored in appendable segments, each with the header and cutoff it leaves
+	private static final int VERSION = 3;
+	private static final int NOMINAL = 0;
+	private static final int NUMERIC = 1;
+	// Bytes hashed at each end of the source file
+	private static final int HASH_BLOCK = 1 << 20;
+
+	private final ColumnStore store;
+	private final int cutoff;
+
+	private Snapshot(ColumnStore store, int cutoff) {
+		this.store = store;
+		this.cutoff = cutoff;
+	}
+
+	public ColumnStore store() {
+		return store;
+	}
+
+	public int cutoff() {
+		/* First diagnosis year still excluded as too recent. */
+		return cutoff;
+	}
+
+	public static File snapshotFile(String source) {
+		return new File(source + ".snapshot");
+	}
+
+	public static long sourceHash(File source) throws IOException {
+		/** CRC32 over the size and the first and last MiB of `source`.
+		 * Size and mtime catch ordinary edits; the sampled hash catches files
+		 * replaced with their timestamp preserved, without reading gigabytes.
+		 */
+		CRC32 crc = new CRC32();
+		try (RandomAccessFile raf = new RandomAccessFile(source, "r")) {
+			long size = raf.length();
+			crc.update(ByteBuffer.allocate(8).putLong(size).array());
+			byte[] block = new byte[(int) Math.min(HASH_BLOCK, size)];
+			raf.readFully(block);
+			crc.update(block);
+			raf.seek(size - block.length);
+			raf.readFully(block);
+			crc.update(block);
+		}
+		return crc.getValue();
+	}
+
+	public static void write(ColumnStore store, String source, String tag, int cutoff)
+			throws IOException {
+		/** Writes `store` next to `source` so later runs can skip parsing it.
+		 * Args:
+		 *  (ColumnStore) store: Preprocessed dataset.
+		 *  (String) source: ARFF file `store` was built from.
+		 *  (String) tag: Description of the preprocessing; a different tag invalidates the snapshot.
+		 *  (int) cutoff: First year excluded as too recent.
+		 */
+		File src = new File(source);
+		File out = snapshotFile(source);
+		File tmp = new File(out.getPath() + ".tmp");
+		try (RandomAccessFile raf = new RandomAccessFile(tmp, "rw")) {
+			raf.setLength(0);
+			raf.writeInt(MAGIC);
+			raf.writeInt(VERSION);
+			raf.writeLong(src.length());
+			raf.writeLong(src.lastModified());
+			raf.writeLong(sourceHash(src));
+			byte[] bytes = tag.getBytes(StandardCharsets.UTF_8);
+			raf.writeInt(bytes.length);
+			raf.write(bytes);
+			writeSegment(raf, store, 0, cutoff);
+			raf.getFD().sync();
+		}
+		if (!tmp.renameTo(out)) {
+			out.delete();
+			if (!tmp.renameTo(out)) { throw new IOException("Cannot write snapshot " + out); }
+		}
+	}
+
+	public static void append(ColumnStore store, int fromRow, String source, int cutoff)
+			throws IOException {
+		/** Appends rows [fromRow, numRows) of `store` as a new segment, leaving earlier
+		 * segments untouched.
+		 * Args:
+		 *  (ColumnStore) store: Dataset read from this snapshot with rows appended.
+		 *  (int) fromRow: First row not yet in the snapshot.
+		 *  (String) source: ARFF file the snapshot belongs to.
+		 *  (int) cutoff: New first year excluded as too recent.
+		 */
+		File snap = snapshotFile(source);
+		if (!snap.isFile()) { throw new IOException("No snapshot to append to: " + snap); }
+		try (RandomAccessFile raf = new RandomAccessFile(snap, "rw")) {
+			raf.seek(raf.length());
+			writeSegment(raf, store, fromRow, cutoff);
+			raf.getFD().sync();
+		}
+	}
+
+	private static void writeSegment(RandomAccessFile raf, ColumnStore store, int fromRow,
+			int cutoff) throws IOException {
+		// Each segment is prefixed with its length, written last, so a torn append is ignored
+		long start = raf.getFilePointer();
+		raf.writeInt(SEGMENT);
+		raf.writeLong(-1);
+		DataOutputStream file = new DataOutputStream(new BufferedOutputStream(
+				Channels.newOutputStream(raf.getChannel()), 1 << 16));
+		Instances header = store.header();
+		writeString(file, header.toString());
+		file.writeInt(header.classIndex());
+		file.writeInt(cutoff);
+		file.writeInt(store.numRows() - fromRow);
+		file.writeInt(store.numAttributes());
+		for (int a = 0; a < store.numAttributes(); a++) {
+			if (store.isNominal(a)) {
+				Codes codes = store.nominalColumn(a);
+				file.writeByte(NOMINAL);
+				file.writeByte(codes.width());
+				for (int r = fromRow; r < codes.size(); r++) {
+					switch (codes.width()) {
+					case 1: file.writeByte(codes.get(r)); break;
+					case 2: file.writeShort(codes.get(r)); break;
+					default: file.writeInt(codes.get(r));
+					}
+				}
+			} else {
+				file.writeByte(NUMERIC);
+				double[] column = store.numericColumn(a);
+				for (int r = fromRow; r < store.numRows(); r++) { file.writeDouble(column[r]); }
+			}
+		}
+		file.writeByte(store.weightColumn() == null ? 0 : 1);
+		if (store.weightColumn() != null) {
+			for (int r = fromRow; r < store.numRows(); r++) { file.writeDouble(store.weight(r)); }
+		}
+		file.flush();
+		long end = raf.getChannel().position();
+		raf.seek(start + 4);
+		raf.writeLong(end - start - 12);
+		raf.seek(end);
+	}
+
+	private static void writeString(DataOutputStream file, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		file.writeInt(bytes.length);
+		file.write(bytes);
+	}
+
+	private static String readString(ByteBuffer buf) throws IOException {
+		int length = buf.getInt();
+		if (length < 0 || length > buf.remaining()) { throw new IOException("Corrupt snapshot string"); }
+		byte[] bytes = new byte[length];
+		buf.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public static Snapshot open(String source, String tag) throws Exception {
+		/** Memory-maps the snapshot of `source` and replays its segments.
+		 * Args:
+		 *  (String) source: ARFF file the snapshot was built from.
+		 *  (String) tag: Expected preprocessing description.
+		 *
+		 * Returns:
+		 * (Snapshot) snapshot: the stored dataset, or null if it is missing, stale or
+		 * cannot be decoded (e.g. truncated by a crash).
+		 */
+		File src = new File(source);
+		File snap = snapshotFile(source);
+		if (!snap.isFile() || !src.isFile()) { return null; }
+		try (RandomAccessFile raf = new RandomAccessFile(snap, "r");
+				FileChannel channel = raf.getChannel()) {
+			ByteBuffer buf = map(channel, 0);
+			if (buf.getInt() != MAGIC || buf.getInt() != VERSION) { return null; }
+			if (buf.getLong() != src.length() || buf.getLong() != src.lastModified()
+					|| buf.getLong() != sourceHash(src) || !readString(buf).equals(tag)) {
+				return null;
+			}
+			long pos = buf.position();
+			Snapshot result = null;
+			while (pos + 12 <= channel.size()) {
+				buf = map(channel, pos);
+				long length = (buf.getInt() == SEGMENT) ? buf.getLong() : -1;
+				if (length < 0 || pos + 12 + length > channel.size()) { break; }
+				Snapshot segment = readSegment(channel, pos + 12, pos + 12 + length);
+				result = (result == null) ? segment
+						: new Snapshot(result.store.append(segment.store), segment.cutoff);
+				pos += 12 + length;
+			}
+			return result;
+		} catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+			// Undecodable: as stale, the ARFF is parsed again
+			return null;
+		}
+	}
+
+	private static Snapshot readSegment(FileChannel channel, long pos, long end) throws Exception {
+		// Every length is checked against the segment end before anything is allocated
+		ByteBuffer buf = map(channel, pos);
+		Instances header = new Instances(new StringReader(readString(buf)));
+		int classIndex = buf.getInt();
+		int cutoff = buf.getInt();
+		int numRows = buf.getInt();
+		int numAtts = buf.getInt();
+		if (classIndex < -1 || classIndex >= header.numAttributes() || numRows < 0
+				|| numAtts != header.numAttributes()) {
+			throw new IOException("Corrupt snapshot segment");
+		}
+		header.setClassIndex(classIndex);
+		Codes[] nominal = new Codes[numAtts];
+		double[][] numeric = new double[numAtts][];
+		pos += buf.position();
+		for (int a = 0; a < numAtts; a++) {
+			buf = map(channel, pos);
+			int type = buf.get();
+			pos++;
+			if (type == NOMINAL) {
+				int width = buf.get();
+				pos++;
+				if ((width != 1 && width != 2 && width != 4) || pos + (long) width * numRows > end) {
+					throw new IOException("Corrupt snapshot column " + a);
+				}
+				nominal[a] = Codes.ofWidth(width, numRows);
+				if (width == 1) { buf.get(((Codes.ByteCodes) nominal[a]).codes); }
+				else if (width == 2) { buf.asShortBuffer().get(((Codes.ShortCodes) nominal[a]).codes); }
+				else { buf.asIntBuffer().get(((Codes.IntCodes) nominal[a]).codes); }
+				pos += (long) width * numRows;
+			} else {
+				if (type != NUMERIC || pos + 8L * numRows > end) {
+					throw new IOException("Corrupt snapshot column " + a);
+				}
+				numeric[a] = new double[numRows];
+				buf.asDoubleBuffer().get(numeric[a]);
+				pos += 8L * numRows;
+			}
+		}
+		if (pos >= end) { throw new IOException("Corrupt snapshot weights"); }
+		buf = map(channel, pos);
+		double[] weights = null;
+		if (buf.get() == 1) {
+			if (pos + 1 + 8L * numRows > end) { throw new IOException("Corrupt snapshot weights"); }
+			weights = new double[numRows];
+			buf.asDoubleBuffer().get(weights);
+		}
+		return new Snapshot(ColumnStore.fromColumns(header, numRows, nominal, numeric, weights), cutoff);
+	}
+
+	private static MappedByteBuffer map(FileChannel channel, long pos) throws IOException {
+		// A mapping is limited to 2GB, so each column gets its own window of the file
+		return channel.map(FileChannel.MapMode.READ_ONLY, pos,
+				Math.min(channel.size() - pos, Integer.MAX_VALUE));
+	}
+}
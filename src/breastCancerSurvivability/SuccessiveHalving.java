@@ -0,0 +1,96 @@
+package breastCancerSurvivability;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+public class SuccessiveHalving<C> {
+	/* Multi-fidelity search: every candidate is scored on a small budget, only the best
+	 * 1/eta move on to a budget eta times larger, until the survivors get the full one.
+	 */
+
+	public interface Evaluator<C> {
+		/** Score of `candidate` (higher is better) on the budget of rung `rung`.
+		 * Args:
+		 *  (C) candidate: Configuration to evaluate.
+		 *  (double) budget: Fraction of the full budget, eta^-(rungs - 1 - rung); 1 on the last rung.
+		 */
+		double evaluate(C candidate, double budget) throws Exception;
+	}
+
+	public static class Result<C> {
+		public final int rung;
+		public final double budget;
+		public final C candidate;
+		public final double score;
+
+		Result(int rung, double budget, C candidate, double score) {
+			this.rung = rung;
+			this.budget = budget;
+			this.candidate = candidate;
+			this.score = score;
+		}
+	}
+
+	private final int rungs;
+	private final int eta;
+	private int threads = Parallel.threads();
+
+	public SuccessiveHalving(int rungs, int eta) {
+		/** Args:
+		 *  (int) rungs: Number of budget levels; 1 is a plain exhaustive search.
+		 *  (int) eta: Reduction factor between rungs, both of survivors and of budget.
+		 */
+		if (rungs < 1 || eta < 2) { throw new IllegalArgumentException("Need rungs >= 1 and eta >= 2"); }
+		this.rungs = rungs;
+		this.eta = eta;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public double budget(int rung) {
+		return Math.pow(eta, rung - (rungs - 1));
+	}
+
+	public List<Result<C>> run(List<C> candidates, final Evaluator<C> evaluator) throws Exception {
+		/** Runs every rung, evaluating each rung's survivors in parallel.
+		 * Returns:
+		 * (List) results: every evaluation, rung by rung, each rung sorted best first
+		 * (ties keep candidate order); the first result of the last rung is the winner.
+		 */
+		List<Result<C>> results = new ArrayList<Result<C>>();
+		List<C> alive = new ArrayList<C>(candidates);
+		for (int r = 0; r < rungs && !alive.isEmpty(); r++) {
+			final double budget = budget(r);
+			List<Callable<Double>> tasks = new ArrayList<Callable<Double>>();
+			for (final C candidate : alive) {
+				tasks.add(new Callable<Double>() {
+					public Double call() throws Exception {
+						return evaluator.evaluate(candidate, budget);
+					}
+				});
+			}
+			List<Double> scores = Parallel.invokeStealing(tasks, threads);
+			List<Result<C>> rung = new ArrayList<Result<C>>();
+			for (int i = 0; i < alive.size(); i++) {
+				rung.add(new Result<C>(r, budget, alive.get(i), scores.get(i)));
+			}
+			// Stable sort, NaN (e.g. a single-class subsample) last
+			Collections.sort(rung, new Comparator<Result<C>>() {
+				public int compare(Result<C> a, Result<C> b) {
+					return Double.compare(Double.isNaN(b.score) ? Double.NEGATIVE_INFINITY : b.score,
+							Double.isNaN(a.score) ? Double.NEGATIVE_INFINITY : a.score);
+				}
+			});
+			results.addAll(rung);
+			int keep = Math.max(1, (int) Math.ceil(rung.size() / (double) eta));
+			alive = new ArrayList<C>();
+			for (int i = 0; i < keep; i++) { alive.add(rung.get(i).candidate); }
+		}
+		return results;
+	}
+}
@@ -0,0 +1,70 @@
+package breastCancerSurvivability;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import weka.core.Instances;
+
+public class WindowCache {
+	/* (stage, first year, last year) slices of a PartitionIndex, built once and reused
+	 * (e.g. across the seeds of findOptimWindow), least recently used evicted first
+	 * once the slices exceed the memory bound.
+	 */
+
+	// A CompactInstance plus its reference in the view
+	private static final long BYTES_PER_ROW = 48;
+
+	private final PartitionIndex index;
+	private final long maxBytes;
+	private long bytes = 0;
+	private int hits = 0;
+	private int misses = 0;
+	private final LinkedHashMap<String, Instances> slices =
+			new LinkedHashMap<String, Instances>(16, 0.75f, true);
+
+	public WindowCache(PartitionIndex index, long maxBytes) {
+		/** Args:
+		 *  (PartitionIndex) index: Index over the dataset to slice.
+		 *  (long) maxBytes: Approximate memory the cached slices may use.
+		 */
+		this.index = index;
+		this.maxBytes = maxBytes;
+	}
+
+	public static long bytes(Instances slice) {
+		return slice.numInstances() * BYTES_PER_ROW;
+	}
+
+	public synchronized Instances get(int stage, int firstYear, int lastYear) {
+		/** Same as Dataset.getWindow(index, stage, firstYear, lastYear), shared by all callers,
+		 * which must not modify it.
+		 */
+		String key = stage + ":" + firstYear + "-" + lastYear;
+		Instances slice = slices.get(key);
+		if (slice != null) {
+			hits++;
+			return slice;
+		}
+		misses++;
+		slice = Dataset.getWindow(index, stage, firstYear, lastYear);
+		// A slice larger than the whole bound is returned uncached
+		if (bytes(slice) > maxBytes) { return slice; }
+		slices.put(key, slice);
+		bytes += bytes(slice);
+		Iterator<Map.Entry<String, Instances>> eldest = slices.entrySet().iterator();
+		while (bytes > maxBytes) {
+			bytes -= bytes(eldest.next().getValue());
+			eldest.remove();
+		}
+		return slice;
+	}
+
+	public synchronized int hits() {
+		return hits;
+	}
+
+	public synchronized int misses() {
+		return misses;
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    BatchScorer.java
+ *
+ */
+
+package weka.classifiers;
+
+import weka.core.Instances;
+
+/**
+ * Interface for classifiers that can score a whole block of instances at once,
+ * writing one class probability per instance into a primitive column instead of
+ * returning a distribution array per instance.
+ *
+ * @version $Revision$
+ */
+public interface BatchScorer {
+
+  /**
+   * Computes the probability of one class for every instance of a block. The
+   * values are those distributionForInstance(data.instance(i))[classIndex]
+   * returns.
+   * 
+   * @param data the instances to score
+   * @param classIndex the class whose probability is wanted
+   * @param scores receives the probabilities, at least data.numInstances() long
+   * @throws Exception if the instances cannot be scored
+   */
+  void scoreInstances(Instances data, int classIndex, double[] scores)
+    throws Exception;
+}
@@ -27,6 +27,7 @@ import java.util.Enumeration;
 import java.util.Random;
 import java.util.Vector;
 
+import weka.classifiers.BatchScorer;
 import weka.classifiers.IterativeClassifier;
 import weka.classifiers.RandomizableClassifier;
 import weka.classifiers.trees.adtree.PredictionNode;
@@ -113,7 +114,7 @@ import weka.core.WeightedInstancesHandler;
  */
 public class ADTree extends RandomizableClassifier implements OptionHandler,
   Drawable, AdditionalMeasureProducer, WeightedInstancesHandler,
-  IterativeClassifier, TechnicalInformationHandler {
+  IterativeClassifier, TechnicalInformationHandler, BatchScorer {
 
   /** for serialization */
   static final long serialVersionUID = -1532264837167690683L;
@@ -877,6 +878,73 @@ public class ADTree extends RandomizableClassifier implements OptionHandler,
     return currentValue;
   }
 
+  /**
+   * Computes the probability of a class for a block of instances, walking the
+   * tree once node by node with the rows that reach each node instead of once
+   * per instance.
+   * 
+   * @param data the instances to score
+   * @param classIndex the class whose probability is wanted
+   * @param scores receives the probabilities, at least data.numInstances() long
+   */
+  @Override
+  public void scoreInstances(Instances data, int classIndex, double[] scores) {
+
+    int n = data.numInstances();
+    int[] rows = new int[n];
+    for (int i = 0; i < n; i++) {
+      rows[i] = i;
+      scores[i] = 0.0;
+    }
+    predictionValuesForRows(data, rows, n, m_root, scores);
+    for (int i = 0; i < n; i++) {
+      double predVal = scores[i];
+      scores[i] = (classIndex == 0) ? 1.0 / (1.0 + Math.pow(Math.E, predVal))
+        : 1.0 / (1.0 + Math.pow(Math.E, -predVal));
+    }
+  }
+
+  /**
+   * Adds the prediction values of a subtree to the rows that reach it, in the
+   * order predictionValueForInstance adds them.
+   * 
+   * @param data the instances being scored
+   * @param rows the rows reaching the node, in its first n entries
+   * @param n the number of rows
+   * @param currentNode the root of the subtree
+   * @param values the prediction value of every instance so far
+   */
+  private void predictionValuesForRows(Instances data, int[] rows, int n,
+    PredictionNode currentNode, double[] values) {
+
+    double value = currentNode.getValue();
+    for (int i = 0; i < n; i++) {
+      values[rows[i]] += value;
+    }
+    if (currentNode.getChildren().isEmpty()) {
+      return;
+    }
+    int[] branches = new int[n];
+    int[] down = new int[n];
+    for (Splitter split : currentNode.getChildren()) {
+      for (int i = 0; i < n; i++) {
+        branches[i] = split.branchInstanceGoesDown(data.instance(rows[i]));
+      }
+      for (int branch = 0; branch < split.getNumOfBranches(); branch++) {
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+          if (branches[i] == branch) {
+            down[m++] = rows[i];
+          }
+        }
+        if (m > 0) {
+          predictionValuesForRows(data, down, m,
+            split.getChildForBranch(branch), values);
+        }
+      }
+    }
+  }
+
   /**
    * Returns a description of the classifier.
    * 
@@ -27,6 +27,7 @@ import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Vector;
 
+import weka.classifiers.BatchScorer;
 import weka.classifiers.IterativeClassifier;
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.trees.adtree.ReferenceInstances;
@@ -95,7 +96,7 @@ import weka.core.WekaEnumeration;
 
 public class LADTree extends AbstractClassifier 
   implements Drawable, IterativeClassifier, 
-             AdditionalMeasureProducer, TechnicalInformationHandler {
+             AdditionalMeasureProducer, TechnicalInformationHandler, BatchScorer {
   
   /**
    * For serialization
@@ -1153,6 +1154,83 @@ public class LADTree extends AbstractClassifier
     return currentValues;
   }
 
+  /**
+   * Computes the probability of a class for a block of instances, walking the
+   * tree once node by node with the rows that reach each node instead of once
+   * per instance.
+   * 
+   * @param data the instances to score
+   * @param classIndex the class whose probability is wanted
+   * @param scores receives the probabilities, at least data.numInstances() long
+   */
+  @Override
+  public void scoreInstances(Instances data, int classIndex, double[] scores) {
+
+    int n = data.numInstances();
+    int[] rows = new int[n];
+    for (int i = 0; i < n; i++) {
+      rows[i] = i;
+    }
+    double[] values = new double[n * m_numOfClasses];
+    predictionValuesForRows(data, rows, n, m_root, values);
+    double[] distribution = new double[m_numOfClasses];
+    for (int r = 0; r < n; r++) {
+      // As distributionForInstance
+      System.arraycopy(values, r * m_numOfClasses, distribution, 0, m_numOfClasses);
+      double max = distribution[Utils.maxIndex(distribution)];
+      for (int i = 0; i < m_numOfClasses; i++) {
+        distribution[i] = Math.exp(distribution[i] - max);
+      }
+      double sum = Utils.sum(distribution);
+      scores[r] = (sum > 0.0) ? distribution[classIndex] / sum
+        : distribution[classIndex];
+    }
+  }
+
+  /**
+   * Adds the prediction values of a subtree to the rows that reach it, in the
+   * order predictionValuesForInstance adds them.
+   * 
+   * @param data the instances being scored
+   * @param rows the rows reaching the node, in its first n entries
+   * @param n the number of rows
+   * @param currentNode the root of the subtree
+   * @param values the prediction values so far, m_numOfClasses per instance
+   */
+  private void predictionValuesForRows(Instances data, int[] rows, int n,
+    PredictionNode currentNode, double[] values) {
+
+    double[] predValues = currentNode.getValues();
+    for (int r = 0; r < n; r++) {
+      int offset = rows[r] * m_numOfClasses;
+      for (int i = 0; i < m_numOfClasses; i++) {
+        values[offset + i] += predValues[i];
+      }
+    }
+    if (currentNode.getChildren().isEmpty()) {
+      return;
+    }
+    int[] branches = new int[n];
+    int[] down = new int[n];
+    for (Splitter split : currentNode.getChildren()) {
+      for (int r = 0; r < n; r++) {
+        branches[r] = split.branchInstanceGoesDown(data.instance(rows[r]));
+      }
+      for (int branch = 0; branch < split.getNumOfBranches(); branch++) {
+        int m = 0;
+        for (int r = 0; r < n; r++) {
+          if (branches[r] == branch) {
+            down[m++] = rows[r];
+          }
+        }
+        if (m > 0) {
+          predictionValuesForRows(data, down, m,
+            split.getChildForBranch(branch), values);
+        }
+      }
+    }
+  }
+
   /** model output functions ************************************************************/
 
   /**